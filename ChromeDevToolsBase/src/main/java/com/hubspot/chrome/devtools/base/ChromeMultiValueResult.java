@@ -0,0 +1,14 @@
+package com.hubspot.chrome.devtools.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a generated class that holds every return value of a command. Such results are
+ * bound from the whole `result` object, other result types from its single member.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChromeMultiValueResult {}
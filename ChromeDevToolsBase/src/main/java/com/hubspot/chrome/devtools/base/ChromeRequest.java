@@ -1,11 +1,24 @@
 package com.hubspot.chrome.devtools.base;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class ChromeRequest {
+/**
+ * A command for chrome. It writes itself straight to the generator it's serialized with,
+ * as `{"id":..,"method":..,"params":{..},"sessionId":..}`: the generated domains send
+ * subclasses that hold each command's arguments in fields and write them in
+ * {@link #writeParams}, so nothing is boxed into a map or serialized reflectively on the
+ * way to the websocket.
+ */
+public class ChromeRequest implements JsonSerializable {
 
   // It's *much* easier to implement this as a POJO instead of an immutable for two reasons:
   //
@@ -24,11 +37,12 @@ public class ChromeRequest {
   private final Integer id;
   private String method;
   private Map<String, Object> params;
+  private String sessionId;
+  private Long timeoutMillis;
 
   public ChromeRequest(String method) {
     this.id = requestNumber.getAndIncrement();
     this.method = method;
-    this.params = new HashMap<>();
   }
 
   public Integer getId() {
@@ -39,11 +53,43 @@ public class ChromeRequest {
     return method;
   }
 
-  @JsonProperty
+  /**
+   * The params added with {@link #putParams}, which are sent as they are when the request
+   * is written. Those a subclass writes itself aren't included.
+   */
   public Map<String, Object> getParams() {
+    if (params == null) {
+      params = new HashMap<>();
+    }
     return params;
   }
 
+  /**
+   * The flat-mode session (see `Target.attachToTarget`) this request is addressed to, or
+   * null for the session the websocket itself is connected to.
+   */
+  public String getSessionId() {
+    return sessionId;
+  }
+
+  public ChromeRequest setSessionId(String sessionId) {
+    this.sessionId = sessionId;
+    return this;
+  }
+
+  /**
+   * How long to wait for chrome's response before failing the command, or null to use
+   * the client's action timeout. Not sent to chrome.
+   */
+  public Long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public ChromeRequest setTimeoutMillis(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+    return this;
+  }
+
   public ChromeRequest setMethod(String methodName) {
     this.method = methodName;
     return this;
@@ -51,8 +97,84 @@ public class ChromeRequest {
 
   public ChromeRequest putParams(String key, Object value) {
     if (value != null) {
-      this.params.put(key, value);
+      if (params == null) {
+        params = new HashMap<>();
+      }
+      params.put(key, value);
     }
     return this;
   }
+
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider provider)
+    throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField("id", id);
+    generator.writeStringField("method", method);
+    if (hasParams()) {
+      generator.writeFieldName("params");
+      generator.writeStartObject();
+      writeParams(generator, provider);
+      generator.writeEndObject();
+    }
+    if (sessionId != null) {
+      generator.writeStringField("sessionId", sessionId);
+    }
+    generator.writeEndObject();
+  }
+
+  @Override
+  public void serializeWithType(
+    JsonGenerator generator,
+    SerializerProvider provider,
+    TypeSerializer typeSerializer
+  ) throws IOException {
+    serialize(generator, provider);
+  }
+
+  /**
+   * Whether there's anything for {@link #writeParams} to write. The params object is left
+   * out when there isn't. Subclasses that write their own arguments check those first.
+   */
+  protected boolean hasParams() {
+    return params != null && !params.isEmpty();
+  }
+
+  /**
+   * Writes the fields of the params object. Subclasses write their own arguments and then
+   * call this for any added with {@link #putParams}.
+   */
+  protected void writeParams(JsonGenerator generator, SerializerProvider provider)
+    throws IOException {
+    if (params == null) {
+      return;
+    }
+    for (Map.Entry<String, Object> param : params.entrySet()) {
+      provider.defaultSerializeField(param.getKey(), param.getValue(), generator);
+    }
+  }
+
+  /**
+   * Writes `value` as Jackson would, without looking up a serializer for it.
+   */
+  protected static void writeNumber(JsonGenerator generator, Number value)
+    throws IOException {
+    if (value instanceof Integer) {
+      generator.writeNumber(value.intValue());
+    } else if (value instanceof Double) {
+      generator.writeNumber(value.doubleValue());
+    } else if (value instanceof Long) {
+      generator.writeNumber(value.longValue());
+    } else if (value instanceof Float) {
+      generator.writeNumber(value.floatValue());
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else if (value == null) {
+      generator.writeNull();
+    } else {
+      generator.writeNumber(value.toString());
+    }
+  }
 }
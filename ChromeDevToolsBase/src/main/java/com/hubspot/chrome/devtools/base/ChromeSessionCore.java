@@ -1,6 +1,8 @@
 package com.hubspot.chrome.devtools.base;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
 
 public interface ChromeSessionCore extends AutoCloseable {
@@ -8,4 +10,25 @@ public interface ChromeSessionCore extends AutoCloseable {
   <T> T send(ChromeRequest request, TypeReference<T> valueType);
   CompletableFuture<Void> sendAsync(ChromeRequest request);
   <T> CompletableFuture<T> sendAsync(ChromeRequest request, TypeReference<T> valueType);
+
+  /**
+   * As {@link #send(ChromeRequest, TypeReference)}, with a type that's already been
+   * resolved. The generated domains resolve each result type once and send it this way.
+   */
+  default <T> T send(ChromeRequest request, JavaType valueType) {
+    return send(request, ChromeSessionCore.<T>asTypeReference(valueType));
+  }
+
+  default <T> CompletableFuture<T> sendAsync(ChromeRequest request, JavaType valueType) {
+    return sendAsync(request, ChromeSessionCore.<T>asTypeReference(valueType));
+  }
+
+  private static <T> TypeReference<T> asTypeReference(JavaType valueType) {
+    return new TypeReference<T>() {
+      @Override
+      public Type getType() {
+        return valueType;
+      }
+    };
+  }
 }
@@ -0,0 +1,150 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.base.ChromeSessionCore;
+import com.hubspot.chrome.devtools.client.core.dom.DOM;
+import com.hubspot.chrome.devtools.client.core.dom.NodeId;
+import com.hubspot.chrome.devtools.client.core.input.Input;
+import com.hubspot.chrome.devtools.client.core.page.Page;
+import com.hubspot.chrome.devtools.client.core.runtime.Runtime;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building common commands through the generated domains and serializing them, which is
+ * everything a session does before the websocket write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChromeRequestBenchmark {
+
+  private static final NodeId DOCUMENT_NODE = new NodeId(1);
+
+  private SerializingSession session;
+  private DOM dom;
+  private Input input;
+  private Page page;
+  private Runtime runtime;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+    session = new SerializingSession(objectMapper);
+    dom = new DOM(session, objectMapper);
+    input = new Input(session, objectMapper);
+    page = new Page(session, objectMapper);
+    runtime = new Runtime(session, objectMapper);
+  }
+
+  @Benchmark
+  public String navigate() {
+    page.navigateAsync("https://www.hubspot.com/");
+    return session.lastSent;
+  }
+
+  @Benchmark
+  public String evaluate() {
+    runtime.evaluateAsync("document.querySelectorAll('a').length");
+    return session.lastSent;
+  }
+
+  @Benchmark
+  public String querySelector() {
+    dom.querySelectorAsync(DOCUMENT_NODE, "#hs-nav-v4 > div.hs-nav-wrapper a[href]");
+    return session.lastSent;
+  }
+
+  @Benchmark
+  public String captureScreenshot() {
+    page.captureScreenshotAsync("png", null, null, null, true);
+    return session.lastSent;
+  }
+
+  @Benchmark
+  public String dispatchMouseEvent() {
+    input.dispatchMouseEventAsync("mousePressed", 412.5, 233);
+    return session.lastSent;
+  }
+
+  /**
+   * Serializes each request the way {@link ChromeDevToolsSession} does, and answers it
+   * straight away.
+   */
+  private static class SerializingSession implements ChromeSessionCore {
+
+    private final ObjectMapper objectMapper;
+    private String lastSent;
+
+    private SerializingSession(ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void send(ChromeRequest request) {
+      serialize(request);
+    }
+
+    @Override
+    public <T> T send(ChromeRequest request, TypeReference<T> valueType) {
+      serialize(request);
+      return null;
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(ChromeRequest request) {
+      serialize(request);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(
+      ChromeRequest request,
+      TypeReference<T> valueType
+    ) {
+      serialize(request);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <T> T send(ChromeRequest request, JavaType valueType) {
+      serialize(request);
+      return null;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(ChromeRequest request, JavaType valueType) {
+      serialize(request);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {}
+
+    private void serialize(ChromeRequest request) {
+      try {
+        lastSent = objectMapper.writeValueAsString(request);
+      } catch (JsonProcessingException e) {
+        throw new ChromeDevToolsException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.hubspot.chrome.devtools.client.core.dom.Node;
+import com.hubspot.chrome.devtools.client.core.dom.NodeId;
+import com.hubspot.chrome.devtools.client.core.page.NavigateResult;
+import com.hubspot.chrome.devtools.client.core.runtime.EvaluateResult;
+import com.hubspot.chrome.devtools.testserver.ChromeRecordings;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding the buffered result of a decoded response to the type its command returns, as
+ * `ChromeDevToolsSession.parseChromeResponse` does. `DOM.querySelector` and
+ * `DOM.getDocument` return a single value, small and large, that is unwrapped from the
+ * result; `Page.navigate` and `Runtime.evaluate` return several, bound to a result class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChromeResultReaderBenchmark {
+
+  private static final Map<String, TypeReference<?>> RESULT_TYPES = ImmutableMap.of(
+    "DOM.querySelector",
+    new TypeReference<NodeId>() {},
+    "DOM.getDocument",
+    new TypeReference<Node>() {},
+    "Page.navigate",
+    new TypeReference<NavigateResult>() {},
+    "Runtime.evaluate",
+    new TypeReference<EvaluateResult>() {}
+  );
+
+  @Param({ "DOM.querySelector", "DOM.getDocument", "Page.navigate", "Runtime.evaluate" })
+  public String method;
+
+  private ChromeResultReader resultReader;
+  private ChromeMessage response;
+  private TypeReference<?> resultType;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+    resultReader = new ChromeResultReader(objectMapper);
+    response =
+      new ChromeMessageDecoder(objectMapper).decode(ChromeRecordings.load(method));
+    resultType = RESULT_TYPES.get(method);
+  }
+
+  @Benchmark
+  public Object read() throws IOException {
+    return resultReader.read(response.getResult(), resultType);
+  }
+}
@@ -0,0 +1,129 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.testserver.ChromeRecordings;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading recorded frames off the websocket, from the frame payloads through to a
+ * completed response future or a dispatched event. Listeners run on a direct executor
+ * so that dispatching them is part of what is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChromeWebSocketClientBenchmark {
+
+  @Benchmark
+  public ChromeMessage onResponseMessage(Responses responses) {
+    ChromeRequest request = new ChromeRequest(responses.method);
+    ChromeWebSocketClient client = responses.client;
+    CompletableFuture<ChromeMessage> response = client.expectResponse(request);
+    client.onMessage(frame(response(request.getId(), responses.result)));
+    return response.getNow(null);
+  }
+
+  @Benchmark
+  public void onEventMessage(Events events) {
+    events.client.onMessage(frame(events.frame));
+  }
+
+  private static byte[] response(int id, String result) {
+    return String
+      .format("{\"id\":%s,\"result\":%s}", id, result)
+      .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<ByteBuffer> frame(byte[] payload) {
+    return Collections.singletonList(ByteBuffer.wrap(payload));
+  }
+
+  @State(Scope.Thread)
+  public static class Responses {
+
+    @Param(
+      { "DOM.querySelector", "Page.navigate", "Runtime.evaluate", "DOM.getDocument" }
+    )
+    public String method;
+
+    ChromeWebSocketClient client;
+    String result;
+
+    @Setup
+    public void setUp() {
+      client = newClient(new ConcurrentHashMap<>());
+      result = ChromeRecordings.loadResult(method);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Events {
+
+    @Param(
+      {
+        "Page.loadEventFired",
+        "Network.requestWillBeSent",
+        "Network.responseReceived",
+        "Runtime.consoleAPICalled",
+      }
+    )
+    public String method;
+
+    /**
+     * Events nobody listens for are skipped rather than bound.
+     */
+    @Param({ "true", "false" })
+    public boolean subscribed;
+
+    ChromeWebSocketClient client;
+    byte[] frame;
+    volatile Event lastEvent;
+
+    @Setup
+    public void setUp() {
+      Map<String, ChromeEventListener> listeners = new ConcurrentHashMap<>();
+      if (subscribed) {
+        listeners.put("benchmark", (EventType type, Event event) -> lastEvent = event);
+      }
+      client = newClient(listeners);
+      frame = ChromeRecordings.load(method).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static ChromeWebSocketClient newClient(
+    Map<String, ChromeEventListener> listeners
+  ) {
+    // Never connected; frames are handed to it as the websocket reader would
+    return new ChromeWebSocketClient(
+      URI.create("ws://127.0.0.1/devtools/browser"),
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+      listeners,
+      MoreExecutors.newDirectExecutorService(),
+      ChromeDevToolsClientDefaults.DEFAULT_CHROME_ACTION_TIMEOUT_MILLIS
+    );
+  }
+}
@@ -0,0 +1,57 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventDeserializer;
+import com.hubspot.chrome.devtools.testserver.ChromeRecordings;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding whole event frames through the {@link EventDeserializer} that the default
+ * object mapper registers for {@link Event}, as anyone reading an event with it does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventDeserializerBenchmark {
+
+  @Param(
+    {
+      "Page.loadEventFired",
+      "Network.requestWillBeSent",
+      "Network.responseReceived",
+      "Runtime.consoleAPICalled",
+    }
+  )
+  public String method;
+
+  private ObjectMapper objectMapper;
+  private byte[] frame;
+
+  @Setup
+  public void setUp() {
+    objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+    frame = ChromeRecordings.load(method).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Event deserialize() throws IOException {
+    return objectMapper.readValue(frame, Event.class);
+  }
+}
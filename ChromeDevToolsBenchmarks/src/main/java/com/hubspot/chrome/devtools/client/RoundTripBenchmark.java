@@ -0,0 +1,98 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.core.dom.NodeId;
+import com.hubspot.chrome.devtools.client.core.page.NavigateResult;
+import com.hubspot.chrome.devtools.client.core.runtime.EvaluateResult;
+import com.hubspot.chrome.devtools.testserver.ChromeTestServer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Commands sent through a connected session to a {@link ChromeTestServer} replaying
+ * recorded responses, and back, sampled so the report includes latency percentiles. The
+ * session is shared, so running with `-t` threads measures contention on one websocket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RoundTripBenchmark {
+
+  private static final int PIPELINED_COMMANDS = 32;
+  private static final NodeId DOCUMENT_NODE = new NodeId(1);
+
+  private ChromeTestServer server;
+  private ChromeDevToolsSession session;
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new ChromeTestServer();
+    server.respondFromRecordings(
+      "DOM.querySelector",
+      "Page.navigate",
+      "Runtime.evaluate"
+    );
+    session =
+      new ChromeDevToolsSession(
+        server.start(),
+        ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+        ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE,
+        ChromeDevToolsClientDefaults.DEFAULT_CHROME_ACTION_TIMEOUT_MILLIS
+      );
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    session.close();
+    server.close();
+  }
+
+  @Benchmark
+  public NodeId querySelector() {
+    return session.getDOM().querySelector(DOCUMENT_NODE, "a[href]");
+  }
+
+  @Benchmark
+  public NavigateResult navigate() {
+    return session.navigate("https://www.hubspot.com/");
+  }
+
+  @Benchmark
+  public EvaluateResult evaluate() {
+    return session.evaluate("Array.from(document.links).slice(0, 3).map(a => a.href)");
+  }
+
+  /**
+   * Many commands written before any response is read, as a page script driving several
+   * async calls at once would.
+   */
+  @Benchmark
+  @OperationsPerInvocation(PIPELINED_COMMANDS)
+  public List<NodeId> pipelinedQuerySelector() {
+    List<CompletableFuture<NodeId>> futures = new ArrayList<>(PIPELINED_COMMANDS);
+    for (int i = 0; i < PIPELINED_COMMANDS; i++) {
+      futures.add(session.getDOM().querySelectorAsync(DOCUMENT_NODE, "a[href]"));
+    }
+    List<NodeId> nodeIds = new ArrayList<>(PIPELINED_COMMANDS);
+    for (CompletableFuture<NodeId> future : futures) {
+      nodeIds.add(future.join());
+    }
+    return nodeIds;
+  }
+}
@@ -0,0 +1,142 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.base.ChromeSessionCore;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Collects commands and writes them to chrome back to back, so a sequence of commands
+ * costs about one round trip instead of one each. Commands are queued through the async
+ * methods of the usual domain classes, bound to the batch with {@link #domain}:
+ *
+ *    ChromeBatch batch = session.newBatch();
+ *    batch.domain(Page::new).enableAsync();
+ *    batch.domain(Network::new).enableAsync();
+ *    CompletableFuture<EvaluateResult> result = batch
+ *      .domain(Runtime::new)
+ *      .evaluateAsync("navigator.userAgent");
+ *    batch.send().join();
+ *
+ * Chrome runs the commands in the order they were queued. The futures returned while
+ * queueing complete as their responses arrive.
+ */
+public class ChromeBatch implements ChromeSessionCore {
+
+  private final ChromeDevToolsSession session;
+  private final ObjectMapper objectMapper;
+  private final Queue<Command<?>> queued;
+
+  ChromeBatch(ChromeDevToolsSession session, ObjectMapper objectMapper) {
+    this.session = session;
+    this.objectMapper = objectMapper;
+    this.queued = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Binds a domain class to this batch, e.g. `batch.domain(Page::new)`.
+   */
+  public <D> D domain(BiFunction<ChromeSessionCore, ObjectMapper, D> domainFactory) {
+    return domainFactory.apply(this, objectMapper);
+  }
+
+  @Override
+  public CompletableFuture<Void> sendAsync(ChromeRequest request) {
+    return enqueue(() -> session.sendAsync(request));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> sendAsync(
+    ChromeRequest request,
+    TypeReference<T> valueType
+  ) {
+    return enqueue(() -> session.sendAsync(request, valueType));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> sendAsync(ChromeRequest request, JavaType valueType) {
+    return enqueue(() -> session.sendAsync(request, valueType));
+  }
+
+  @Override
+  public void send(ChromeRequest request) {
+    throw blockingSend(request);
+  }
+
+  @Override
+  public <T> T send(ChromeRequest request, TypeReference<T> valueType) {
+    throw blockingSend(request);
+  }
+
+  @Override
+  public <T> T send(ChromeRequest request, JavaType valueType) {
+    throw blockingSend(request);
+  }
+
+  /**
+   * Writes every queued command and empties the batch. The returned future completes
+   * once all of them have, and fails if any of them does.
+   */
+  public CompletableFuture<Void> send() {
+    List<Command<?>> commands = new ArrayList<>();
+    Command<?> next;
+    while ((next = queued.poll()) != null) {
+      commands.add(next);
+    }
+    commands.forEach(Command::send);
+    return CompletableFuture.allOf(
+      commands.stream().map(command -> command.result).toArray(CompletableFuture[]::new)
+    );
+  }
+
+  /**
+   * Sends the queued commands and waits for all of them.
+   */
+  @Override
+  public void close() {
+    ChromeWebSocketClient.await(send());
+  }
+
+  private <T> CompletableFuture<T> enqueue(
+    Supplier<CompletableFuture<T>> sender
+  ) {
+    Command<T> command = new Command<>(sender);
+    queued.add(command);
+    return command.result;
+  }
+
+  private static ChromeDevToolsException blockingSend(ChromeRequest request) {
+    return new ChromeDevToolsException(
+      String.format(
+        "%s can't be batched because it waits for its response; use its async variant",
+        request.getMethod()
+      )
+    );
+  }
+
+  private static final class Command<T> {
+
+    private final Supplier<CompletableFuture<T>> sender;
+    private final CompletableFuture<T> result;
+
+    private Command(Supplier<CompletableFuture<T>> sender) {
+      this.sender = sender;
+      this.result = new CompletableFuture<>();
+    }
+
+    private void send() {
+      if (!result.isCancelled()) {
+        ChromeFutures.relay(sender.get(), result);
+      }
+    }
+  }
+}
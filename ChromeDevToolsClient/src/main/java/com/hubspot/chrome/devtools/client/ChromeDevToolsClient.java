@@ -1,6 +1,7 @@
 package com.hubspot.chrome.devtools.client;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.rholder.retry.RetryException;
 import com.github.rholder.retry.Retryer;
@@ -19,8 +20,10 @@ import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,12 +35,16 @@ public class ChromeDevToolsClient implements Closeable {
   private static final String WEBSOCKET_URL_TEMPLATE = "ws://%s:%s/devtools/page/%s";
 
   private final Retryer<TargetID> httpRetryer;
+  private final Retryer<String> browserHttpRetryer;
 
   private final ExecutorService executorService;
   private final ObjectMapper objectMapper;
   private final HttpClient httpClient;
   private final long actionTimeoutMillis;
   private final boolean defaultStartNewTarget;
+  private final ChromeInFlightLimit connectionInFlightLimit;
+  private final ChromeInFlightLimit sessionInFlightLimit;
+  private final ChromeDevToolsMetrics metrics;
 
   private ChromeDevToolsClient(
     ObjectMapper objectMapper,
@@ -45,21 +52,35 @@ public class ChromeDevToolsClient implements Closeable {
     HttpClient httpClient,
     long actionTimeoutMillis,
     long sessionConnectTimeoutMillis,
-    boolean defaultStartNewTarget
+    boolean defaultStartNewTarget,
+    ChromeInFlightLimit connectionInFlightLimit,
+    ChromeInFlightLimit sessionInFlightLimit,
+    ChromeDevToolsMetrics metrics
   ) {
     this.executorService = executorService;
     this.objectMapper = objectMapper;
     this.httpClient = httpClient;
     this.actionTimeoutMillis = actionTimeoutMillis;
     this.defaultStartNewTarget = defaultStartNewTarget;
-    this.httpRetryer =
-      RetryerBuilder
-        .<TargetID>newBuilder()
-        .retryIfExceptionOfType(ChromeDevToolsException.class)
-        .retryIfExceptionOfType(HttpRuntimeException.class)
-        .withStopStrategy(StopStrategies.stopAfterDelay(sessionConnectTimeoutMillis))
-        .withWaitStrategy(WaitStrategies.exponentialWait(100, TimeUnit.MILLISECONDS))
-        .build();
+    this.connectionInFlightLimit = connectionInFlightLimit;
+    this.sessionInFlightLimit = sessionInFlightLimit;
+    this.metrics = metrics;
+    this.httpRetryer = newHttpRetryer(sessionConnectTimeoutMillis);
+    this.browserHttpRetryer = newHttpRetryer(sessionConnectTimeoutMillis);
+    if (executorService instanceof ThreadPoolExecutor) {
+      BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) executorService).getQueue();
+      metrics.registerGauge("executor_queue_depth", queue::size);
+    }
+  }
+
+  private static <T> Retryer<T> newHttpRetryer(long sessionConnectTimeoutMillis) {
+    return RetryerBuilder
+      .<T>newBuilder()
+      .retryIfExceptionOfType(ChromeDevToolsException.class)
+      .retryIfExceptionOfType(HttpRuntimeException.class)
+      .withStopStrategy(StopStrategies.stopAfterDelay(sessionConnectTimeoutMillis))
+      .withWaitStrategy(WaitStrategies.exponentialWait(100, TimeUnit.MILLISECONDS))
+      .build();
   }
 
   public static ChromeDevToolsClient defaultClient() {
@@ -78,10 +99,42 @@ public class ChromeDevToolsClient implements Closeable {
       new URI(uri),
       objectMapper,
       executorService,
-      actionTimeoutMillis
+      actionTimeoutMillis,
+      connectionInFlightLimit,
+      sessionInFlightLimit,
+      metrics
     );
   }
 
+  /**
+   * Connects to the browser target rather than to a page. Pages are then driven over this
+   * one websocket with {@link ChromeDevToolsSession#attachToTarget} and
+   * {@link ChromeDevToolsSession#attachToNewTarget}, instead of opening a websocket (and
+   * its threads) per page with {@link #connect}.
+   */
+  public ChromeDevToolsSession connectToBrowser(String host, int port)
+    throws URISyntaxException {
+    String uri;
+    try {
+      uri = browserHttpRetryer.call(() -> getBrowserWebSocketUrl(host, port));
+    } catch (ExecutionException | RetryException e) {
+      throw new ChromeDevToolsException(e);
+    }
+    return new ChromeDevToolsSession(
+      new URI(uri),
+      objectMapper,
+      executorService,
+      actionTimeoutMillis,
+      connectionInFlightLimit,
+      sessionInFlightLimit,
+      metrics
+    );
+  }
+
+  public ChromeDevToolsMetrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   public void close() {
     try {
@@ -116,6 +169,26 @@ public class ChromeDevToolsClient implements Closeable {
     return new TargetID(sessions.get(0).getId());
   }
 
+  private String getBrowserWebSocketUrl(String host, int port) {
+    String url = String.format("http://%s:%d/json/version", host, port);
+    HttpRequest httpRequest = HttpRequest
+      .newBuilder()
+      .setUrl(url)
+      .setMethod(Method.GET)
+      .build();
+    HttpResponse response = httpClient.execute(httpRequest);
+
+    if (response.isError()) {
+      throw new ChromeDevToolsException("Unable to find browser websocket url.");
+    }
+
+    JsonNode version = response.getAsJsonNode();
+    if (!version.hasNonNull("webSocketDebuggerUrl")) {
+      throw new ChromeDevToolsException("Unable to find browser websocket url.");
+    }
+    return version.get("webSocketDebuggerUrl").asText();
+  }
+
   private TargetID startNewTarget(String host, int port) {
     String url = String.format("http://%s:%d/json/new", host, port);
     HttpRequest httpRequest = HttpRequest
@@ -143,9 +216,12 @@ public class ChromeDevToolsClient implements Closeable {
     private long actionTimeoutMillis;
     private long sessionConnectTimeoutMillis;
     private boolean defaultStartNewTarget;
+    private ChromeInFlightLimit connectionInFlightLimit;
+    private ChromeInFlightLimit sessionInFlightLimit;
+    private boolean useVirtualThreads;
+    private ChromeDevToolsMetrics metrics;
 
     public Builder() {
-      this.executorService = ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE;
       this.objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
       this.httpClient = ChromeDevToolsClientDefaults.DEFAULT_HTTP_CLIENT;
       this.actionTimeoutMillis =
@@ -153,8 +229,18 @@ public class ChromeDevToolsClient implements Closeable {
       this.sessionConnectTimeoutMillis =
         ChromeDevToolsClientDefaults.DEFAULT_HTTP_CONNECTION_RETRY_TIMEOUT_MILLIS;
       this.defaultStartNewTarget = ChromeDevToolsClientDefaults.DEFAULT_START_NEW_TARGET;
+      this.connectionInFlightLimit =
+        ChromeDevToolsClientDefaults.DEFAULT_CONNECTION_IN_FLIGHT_LIMIT;
+      this.sessionInFlightLimit =
+        ChromeDevToolsClientDefaults.DEFAULT_SESSION_IN_FLIGHT_LIMIT;
+      this.metrics = ChromeDevToolsMetrics.NOOP;
     }
 
+    /**
+     * Runs event listeners and the continuations of async commands. Defaults to
+     * {@link ChromeDevToolsClientDefaults#DEFAULT_EXECUTOR_SERVICE}. Can't be combined
+     * with {@link #setUseVirtualThreads}; `build()` fails if both are set.
+     */
     public ChromeDevToolsClient.Builder setExecutorService(
       ExecutorService executorService
     ) {
@@ -193,14 +279,71 @@ public class ChromeDevToolsClient implements Closeable {
       return this;
     }
 
+    /**
+     * Caps the commands awaiting a response on each websocket, counting every target
+     * attached through it. Unlimited by default.
+     */
+    public Builder setConnectionInFlightLimit(
+      ChromeInFlightLimit connectionInFlightLimit
+    ) {
+      this.connectionInFlightLimit = connectionInFlightLimit;
+      return this;
+    }
+
+    /**
+     * Caps the commands awaiting a response on each session, so one busy target can't
+     * take the whole connection's window. Unlimited by default.
+     */
+    public Builder setSessionInFlightLimit(ChromeInFlightLimit sessionInFlightLimit) {
+      this.sessionInFlightLimit = sessionInFlightLimit;
+      return this;
+    }
+
+    /**
+     * Runs event listeners and the continuations of async commands on a new virtual
+     * thread each, instead of on the executor service. Listeners can then make blocking
+     * calls, and blocking-style code can drive thousands of pages without sizing a pool.
+     * Needs Java 21 or later; `build()` fails otherwise. Can't be combined with
+     * {@link #setExecutorService}; `build()` fails if both are set.
+     */
+    public Builder setUseVirtualThreads(boolean useVirtualThreads) {
+      this.useVirtualThreads = useVirtualThreads;
+      return this;
+    }
+
+    /**
+     * Where the client reports command latencies, event counts, bytes and so on. Defaults
+     * to {@link ChromeDevToolsMetrics#NOOP}, which records nothing; pass a
+     * {@link ChromeDevToolsMetricsRecorder} to keep them, for reading back or exporting
+     * with {@link ChromePrometheusExporter}.
+     */
+    public Builder setMetrics(ChromeDevToolsMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
     public ChromeDevToolsClient build() {
+      ExecutorService executor = executorService;
+      if (useVirtualThreads) {
+        if (executor != null) {
+          throw new IllegalStateException(
+            "Set either an executor service or virtual threads, not both"
+          );
+        }
+        executor = ChromeVirtualThreads.newThreadPerTaskExecutor();
+      } else if (executor == null) {
+        executor = ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE;
+      }
       return new ChromeDevToolsClient(
         objectMapper,
-        executorService,
+        executor,
         httpClient,
         actionTimeoutMillis,
         sessionConnectTimeoutMillis,
-        defaultStartNewTarget
+        defaultStartNewTarget,
+        connectionInFlightLimit,
+        sessionInFlightLimit,
+        metrics
       );
     }
   }
@@ -43,4 +43,12 @@ public class ChromeDevToolsClientDefaults {
   public static final int DEFAULT_CHROME_ACTION_TIMEOUT_MILLIS = 60 * 1000;
   public static final int DEFAULT_HTTP_CONNECTION_RETRY_TIMEOUT_MILLIS = 5 * 1000;
   public static final boolean DEFAULT_START_NEW_TARGET = false;
+  public static final int DEFAULT_POOL_MIN_IDLE_SESSIONS = 1;
+  public static final int DEFAULT_POOL_MAX_SESSIONS = 8;
+  public static final int DEFAULT_POOL_LEASE_TIMEOUT_MILLIS = 10 * 1000;
+  public static final int DEFAULT_POOL_HEALTH_CHECK_INTERVAL_MILLIS = 30 * 1000;
+  public static final ChromeInFlightLimit DEFAULT_CONNECTION_IN_FLIGHT_LIMIT =
+    ChromeInFlightLimit.unlimited();
+  public static final ChromeInFlightLimit DEFAULT_SESSION_IN_FLIGHT_LIMIT =
+    ChromeInFlightLimit.unlimited();
 }
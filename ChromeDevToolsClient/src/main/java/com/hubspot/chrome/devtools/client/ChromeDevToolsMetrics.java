@@ -0,0 +1,66 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.target.SessionID;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Receives measurements from a client's websockets and sessions. Every method has a no-op
+ * default, so an implementation only overrides what it reports. They are called on hot
+ * paths, the websocket reader thread among them, so they must be cheap and never block.
+ *
+ * Clients record nothing unless given an implementation, since even cheap bookkeeping
+ * adds up across every message. {@link ChromeDevToolsMetricsRecorder} keeps everything
+ * in memory; {@link ChromePrometheusExporter} renders what it has recorded.
+ *
+ * A `sessionId` is that of the flat-mode session (see
+ * `ChromeDevToolsSession.attachToTarget`) a message belongs to, or null for the target
+ * the websocket itself is connected to.
+ */
+public interface ChromeDevToolsMetrics {
+  ChromeDevToolsMetrics NOOP = new ChromeDevToolsMetrics() {};
+
+  enum CommandOutcome {
+    SUCCESS,
+    ERROR,
+    TIMEOUT,
+    CANCELLED,
+  }
+
+  /**
+   * A command of `bytes` bytes was written to the websocket.
+   */
+  default void commandSent(String method, @Nullable SessionID sessionId, int bytes) {}
+
+  /**
+   * A command sent `latencyNanos` ago got its response, failed, timed out or was
+   * cancelled.
+   */
+  default void commandCompleted(
+    String method,
+    CommandOutcome outcome,
+    long latencyNanos
+  ) {}
+
+  /**
+   * A message of `bytes` bytes was read from the websocket.
+   */
+  default void messageReceived(@Nullable SessionID sessionId, int bytes) {}
+
+  /**
+   * Chrome sent an event, whether or not anyone was listening for it.
+   */
+  default void eventReceived(EventType eventType) {}
+
+  /**
+   * A flat-mode session was detached; nothing more will be reported for it.
+   */
+  default void sessionClosed(SessionID sessionId) {}
+
+  /**
+   * Registers a value to be read whenever metrics are collected, such as the depth of the
+   * client's executor queue. Called once per client.
+   */
+  default void registerGauge(String name, LongSupplier value) {}
+}
@@ -0,0 +1,225 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.target.SessionID;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps a client's metrics in memory, with no dependencies: counters are `LongAdder`s and
+ * command latencies go into fixed-bucket histograms, one per protocol method. Read them
+ * through the getters, or scrape them with {@link ChromePrometheusExporter}.
+ *
+ * Bytes are counted per flat-mode session, with the targets that websockets are connected
+ * to directly sharing the `""` session, and a session's counts are dropped once it is
+ * closed so they don't pile up as targets come and go.
+ */
+public class ChromeDevToolsMetricsRecorder implements ChromeDevToolsMetrics {
+
+  static final String CONNECTION_SESSION = "";
+
+  /**
+   * Upper bounds, in milliseconds, of the latency histogram buckets.
+   */
+  static final long[] LATENCY_BUCKET_MILLIS = {
+    1,
+    2,
+    5,
+    10,
+    25,
+    50,
+    100,
+    250,
+    500,
+    1000,
+    2500,
+    5000,
+    10000,
+    30000,
+    60000,
+  };
+  private static final long[] LATENCY_BUCKET_NANOS = Arrays
+    .stream(LATENCY_BUCKET_MILLIS)
+    .map(TimeUnit.MILLISECONDS::toNanos)
+    .toArray();
+
+  private final Map<String, LatencyHistogram> commandLatencies;
+  private final Map<String, Map<CommandOutcome, LongAdder>> commandCounts;
+  private final AtomicLong inFlightCommands;
+  private final Map<EventType, LongAdder> eventCounts;
+  private final Map<String, LongAdder> bytesSent;
+  private final Map<String, LongAdder> bytesReceived;
+  private final Map<String, LongSupplier> gauges;
+
+  public ChromeDevToolsMetricsRecorder() {
+    this.commandLatencies = new ConcurrentHashMap<>();
+    this.commandCounts = new ConcurrentHashMap<>();
+    this.inFlightCommands = new AtomicLong();
+    this.eventCounts = new ConcurrentHashMap<>();
+    this.bytesSent = new ConcurrentHashMap<>();
+    this.bytesReceived = new ConcurrentHashMap<>();
+    this.gauges = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void commandSent(String method, @Nullable SessionID sessionId, int bytes) {
+    inFlightCommands.incrementAndGet();
+    counter(bytesSent, session(sessionId)).add(bytes);
+  }
+
+  @Override
+  public void commandCompleted(
+    String method,
+    CommandOutcome outcome,
+    long latencyNanos
+  ) {
+    inFlightCommands.decrementAndGet();
+    commandCounts
+      .computeIfAbsent(method, ignored -> newOutcomeCounters())
+      .get(outcome)
+      .increment();
+    commandLatencies
+      .computeIfAbsent(method, ignored -> new LatencyHistogram())
+      .record(latencyNanos);
+  }
+
+  @Override
+  public void messageReceived(@Nullable SessionID sessionId, int bytes) {
+    counter(bytesReceived, session(sessionId)).add(bytes);
+  }
+
+  @Override
+  public void eventReceived(EventType eventType) {
+    counter(eventCounts, eventType).increment();
+  }
+
+  @Override
+  public void sessionClosed(SessionID sessionId) {
+    bytesSent.remove(sessionId.getValue());
+    bytesReceived.remove(sessionId.getValue());
+  }
+
+  @Override
+  public void registerGauge(String name, LongSupplier value) {
+    gauges.put(name, value);
+  }
+
+  public long getCommandCount(String method, CommandOutcome outcome) {
+    Map<CommandOutcome, LongAdder> counts = commandCounts.get(method);
+    return counts == null ? 0 : counts.get(outcome).sum();
+  }
+
+  /**
+   * Commands written but not yet completed, across all of the client's sessions.
+   */
+  public long getInFlightCommandCount() {
+    return inFlightCommands.get();
+  }
+
+  public long getEventCount(EventType eventType) {
+    LongAdder count = eventCounts.get(eventType);
+    return count == null ? 0 : count.sum();
+  }
+
+  public long getBytesSent(@Nullable SessionID sessionId) {
+    LongAdder count = bytesSent.get(session(sessionId));
+    return count == null ? 0 : count.sum();
+  }
+
+  public long getBytesReceived(@Nullable SessionID sessionId) {
+    LongAdder count = bytesReceived.get(session(sessionId));
+    return count == null ? 0 : count.sum();
+  }
+
+  Map<String, LatencyHistogram> getCommandLatencies() {
+    return commandLatencies;
+  }
+
+  Map<String, Map<CommandOutcome, LongAdder>> getCommandCounts() {
+    return commandCounts;
+  }
+
+  Map<EventType, LongAdder> getEventCounts() {
+    return eventCounts;
+  }
+
+  Map<String, LongAdder> getBytesSent() {
+    return bytesSent;
+  }
+
+  Map<String, LongAdder> getBytesReceived() {
+    return bytesReceived;
+  }
+
+  Map<String, LongSupplier> getGauges() {
+    return gauges;
+  }
+
+  private static String session(@Nullable SessionID sessionId) {
+    return sessionId == null ? CONNECTION_SESSION : sessionId.getValue();
+  }
+
+  private static <K> LongAdder counter(Map<K, LongAdder> counters, K key) {
+    LongAdder counter = counters.get(key);
+    return counter != null
+      ? counter
+      : counters.computeIfAbsent(key, ignored -> new LongAdder());
+  }
+
+  private static Map<CommandOutcome, LongAdder> newOutcomeCounters() {
+    Map<CommandOutcome, LongAdder> counters = new EnumMap<>(CommandOutcome.class);
+    for (CommandOutcome outcome : CommandOutcome.values()) {
+      counters.put(outcome, new LongAdder());
+    }
+    return counters;
+  }
+
+  static final class LatencyHistogram {
+
+    // One per bucket, plus the last for anything slower than the largest bound
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos;
+
+    private LatencyHistogram() {
+      this.buckets = new LongAdder[LATENCY_BUCKET_MILLIS.length + 1];
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+      this.sumNanos = new LongAdder();
+    }
+
+    private void record(long latencyNanos) {
+      int bucket = 0;
+      while (
+        bucket < LATENCY_BUCKET_NANOS.length &&
+        latencyNanos > LATENCY_BUCKET_NANOS[bucket]
+      ) {
+        bucket++;
+      }
+      buckets[bucket].increment();
+      sumNanos.add(latencyNanos);
+    }
+
+    /**
+     * The number of latencies in each bucket, not cumulative.
+     */
+    long[] getBucketCounts() {
+      long[] counts = new long[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        counts[i] = buckets[i].sum();
+      }
+      return counts;
+    }
+
+    long getSumNanos() {
+      return sumNanos.sum();
+    }
+  }
+}
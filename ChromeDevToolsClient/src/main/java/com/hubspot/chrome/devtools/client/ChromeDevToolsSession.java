@@ -1,8 +1,7 @@
 package com.hubspot.chrome.devtools.client;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.rholder.retry.RetryException;
 import com.github.rholder.retry.Retryer;
@@ -11,14 +10,15 @@ import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.WaitStrategies;
 import com.google.common.base.Predicates;
 import com.hubspot.chrome.devtools.base.ChromeRequest;
-import com.hubspot.chrome.devtools.base.ChromeResponse;
 import com.hubspot.chrome.devtools.base.ChromeSessionCore;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsMetrics.CommandOutcome;
 import com.hubspot.chrome.devtools.client.core.Event;
 import com.hubspot.chrome.devtools.client.core.EventType;
 import com.hubspot.chrome.devtools.client.core.accessibility.Accessibility;
 import com.hubspot.chrome.devtools.client.core.animation.Animation;
 import com.hubspot.chrome.devtools.client.core.audits.Audits;
 import com.hubspot.chrome.devtools.client.core.browser.Browser;
+import com.hubspot.chrome.devtools.client.core.browser.BrowserContextID;
 import com.hubspot.chrome.devtools.client.core.cachestorage.CacheStorage;
 import com.hubspot.chrome.devtools.client.core.css.CSS;
 import com.hubspot.chrome.devtools.client.core.debugger.Debugger;
@@ -38,6 +38,8 @@ import com.hubspot.chrome.devtools.client.core.input.Input;
 import com.hubspot.chrome.devtools.client.core.input.MouseButton;
 import com.hubspot.chrome.devtools.client.core.inspector.Inspector;
 import com.hubspot.chrome.devtools.client.core.io.IO;
+import com.hubspot.chrome.devtools.client.core.io.ReadResult;
+import com.hubspot.chrome.devtools.client.core.io.StreamHandle;
 import com.hubspot.chrome.devtools.client.core.layertree.LayerTree;
 import com.hubspot.chrome.devtools.client.core.log.Log;
 import com.hubspot.chrome.devtools.client.core.memory.Memory;
@@ -61,27 +63,40 @@ import com.hubspot.chrome.devtools.client.core.storage.Storage;
 import com.hubspot.chrome.devtools.client.core.systeminfo.SystemInfo;
 import com.hubspot.chrome.devtools.client.core.target.SessionID;
 import com.hubspot.chrome.devtools.client.core.target.Target;
+import com.hubspot.chrome.devtools.client.core.target.TargetID;
 import com.hubspot.chrome.devtools.client.core.tethering.Tethering;
 import com.hubspot.chrome.devtools.client.core.tracing.Tracing;
 import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,13 +106,22 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
 
   public static final long DEFAULT_TIMEOUT_MILLIS = 10000L;
   public static final long DEFAULT_PERIOD_MILLIS = 10L;
+  public static final int DEFAULT_STREAM_CHUNK_BYTES = 1024 * 1024;
 
   private final ChromeWebSocketClient websocket;
   private final ObjectMapper objectMapper;
+  private final ChromeResultReader resultReader;
   private final ExecutorService executorService;
   private final UUID id;
+  private final ChromeDevToolsSession parent;
+  private final SessionID sessionId;
+  private final BrowserContextID browserContextId;
 
-  private final Map<String, ChromeEventListener> chromeEventListeners;
+  private final ChromeEventListenerRegistry eventListeners;
+  private final AtomicInteger listenerCount;
+  private final ChromeInFlightLimit inFlightLimit;
+  private final ChromeInFlightLimiter inFlightLimiter;
+  private final Map<Class<?>, Object> domains;
 
   public ChromeDevToolsSession(
     URI uri,
@@ -105,18 +129,55 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     ExecutorService executorService,
     long actionTimeoutMillis
   ) {
-    this.chromeEventListeners = new ConcurrentHashMap<>();
+    this(
+      uri,
+      objectMapper,
+      executorService,
+      actionTimeoutMillis,
+      ChromeInFlightLimit.unlimited(),
+      ChromeInFlightLimit.unlimited(),
+      ChromeDevToolsMetrics.NOOP
+    );
+  }
+
+  /**
+   * @param connectionInFlightLimit Caps the commands awaiting a response on the
+   *                                websocket, including those of attached targets.
+   * @param sessionInFlightLimit Caps the commands awaiting a response on this session,
+   *                             and on each target session attached from it.
+   * @param metrics Receives measurements of this session's commands and websocket.
+   */
+  public ChromeDevToolsSession(
+    URI uri,
+    ObjectMapper objectMapper,
+    ExecutorService executorService,
+    long actionTimeoutMillis,
+    ChromeInFlightLimit connectionInFlightLimit,
+    ChromeInFlightLimit sessionInFlightLimit,
+    ChromeDevToolsMetrics metrics
+  ) {
     this.websocket =
       new ChromeWebSocketClient(
         uri,
         objectMapper,
-        chromeEventListeners,
+        new ConcurrentHashMap<>(),
         executorService,
-        actionTimeoutMillis
+        actionTimeoutMillis,
+        connectionInFlightLimit,
+        metrics
       );
+    this.eventListeners = websocket.getEventListeners();
+    this.listenerCount = new AtomicInteger();
+    this.inFlightLimit = sessionInFlightLimit;
+    this.inFlightLimiter = websocket.newInFlightLimiter(sessionInFlightLimit);
     this.objectMapper = objectMapper;
+    this.resultReader = new ChromeResultReader(objectMapper);
     this.executorService = executorService;
     this.id = UUID.randomUUID();
+    this.parent = null;
+    this.sessionId = null;
+    this.browserContextId = null;
+    this.domains = new ConcurrentHashMap<>();
 
     try {
       this.websocket.connectBlocking();
@@ -128,39 +189,168 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     }
   }
 
+  /**
+   * @deprecated
+   * Listeners are tracked by the websocket client, which must have been created with the
+   * same `chromeEventListeners` map. Use the constructor without the map instead.
+   */
+  @Deprecated
   public ChromeDevToolsSession(
     Map<String, ChromeEventListener> chromeEventListeners,
     ChromeWebSocketClient chromeWebSocketClient,
     ObjectMapper objectMapper,
     ExecutorService executorService
   ) {
-    this.chromeEventListeners = chromeEventListeners;
+    this(chromeWebSocketClient, objectMapper, executorService);
+  }
+
+  public ChromeDevToolsSession(
+    ChromeWebSocketClient chromeWebSocketClient,
+    ObjectMapper objectMapper,
+    ExecutorService executorService
+  ) {
+    this(
+      chromeWebSocketClient,
+      null,
+      null,
+      null,
+      ChromeInFlightLimit.unlimited(),
+      objectMapper,
+      executorService
+    );
+  }
+
+  private ChromeDevToolsSession(
+    ChromeWebSocketClient chromeWebSocketClient,
+    @Nullable ChromeDevToolsSession parent,
+    @Nullable SessionID sessionId,
+    @Nullable BrowserContextID browserContextId,
+    ChromeInFlightLimit inFlightLimit,
+    ObjectMapper objectMapper,
+    ExecutorService executorService
+  ) {
     this.websocket = chromeWebSocketClient;
+    this.eventListeners =
+      sessionId == null
+        ? chromeWebSocketClient.getEventListeners()
+        : chromeWebSocketClient.getEventListeners(sessionId);
+    this.listenerCount = new AtomicInteger();
+    this.inFlightLimit = inFlightLimit;
+    this.inFlightLimiter = chromeWebSocketClient.newInFlightLimiter(inFlightLimit);
     this.objectMapper = objectMapper;
+    this.resultReader = new ChromeResultReader(objectMapper);
     this.executorService = executorService;
     this.id = UUID.randomUUID();
+    this.parent = parent;
+    this.sessionId = sessionId;
+    this.browserContextId = browserContextId;
+    this.domains = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Attaches to `targetId` in flat mode and returns a session for it that shares this
+   * session's websocket. Commands sent through the returned session are tagged with its
+   * `sessionId`, and its listeners only see that target's events, so any number of
+   * targets can be driven over one browser connection (see
+   * `ChromeDevToolsClient.connectToBrowser`).
+   *
+   * Closing the returned session detaches from the target; it doesn't close the target
+   * or the websocket.
+   */
+  public ChromeDevToolsSession attachToTarget(TargetID targetId) {
+    return attachToTarget(targetId, null);
+  }
+
+  private ChromeDevToolsSession attachToTarget(
+    TargetID targetId,
+    @Nullable BrowserContextID ownedBrowserContextId
+  ) {
+    SessionID targetSessionId = getTarget().attachToTarget(targetId, true);
+    return new ChromeDevToolsSession(
+      websocket,
+      this,
+      targetSessionId,
+      ownedBrowserContextId,
+      inFlightLimit,
+      objectMapper,
+      executorService
+    );
+  }
+
+  /**
+   * Opens a new target at `url` and attaches to it, as {@link #attachToTarget(TargetID)}.
+   */
+  public ChromeDevToolsSession attachToNewTarget(String url) {
+    return attachToTarget(getTarget().createTarget(url));
+  }
+
+  /**
+   * Opens a new target at `url` inside a new browser context and attaches to it. A
+   * browser context is like an incognito profile: cookies, storage and cache aren't
+   * shared with any other context, which isolates the target at a fraction of the cost
+   * of a separate chrome process.
+   *
+   * Closing the returned session disposes of the browser context, closing the target
+   * with it.
+   */
+  public ChromeDevToolsSession attachToNewBrowserContext(String url) {
+    Target target = getTarget();
+    BrowserContextID browserContextId = target.createBrowserContext(true);
+    try {
+      TargetID targetId = target.createTarget(
+        url,
+        null,
+        null,
+        null,
+        null,
+        null,
+        browserContextId
+      );
+      return attachToTarget(targetId, browserContextId);
+    } catch (RuntimeException e) {
+      target.disposeBrowserContext(browserContextId);
+      throw e;
+    }
+  }
+
+  /**
+   * The flat-mode session this session's commands are tagged with, or null if it talks to
+   * the target its websocket is connected to.
+   */
+  @Nullable
+  public SessionID getSessionId() {
+    return sessionId;
   }
 
   @Override
   public void send(ChromeRequest request) {
-    sendChromeRequest(request);
-    websocket.getResponse(request.getId());
+    ChromeWebSocketClient.await(sendChromeRequestAsync(request));
   }
 
   @Override
   public <T> T send(ChromeRequest request, TypeReference<T> valueType) {
-    sendChromeRequest(request);
-    ChromeResponse response = websocket.getResponse(request.getId());
+    return sendAndRead(request, valueType.getType());
+  }
+
+  @Override
+  public <T> T send(ChromeRequest request, JavaType valueType) {
+    return sendAndRead(request, valueType);
+  }
+
+  private <T> T sendAndRead(ChromeRequest request, Type valueType) {
+    ChromeMessage response = ChromeWebSocketClient.await(sendChromeRequestAsync(request));
     return parseChromeResponse(response, valueType);
   }
 
+  // Responses are completed on the websocket reader thread, so both variants hop onto the
+  // executor before handing back control. Otherwise a continuation chained by the caller
+  // (e.g. another blocking send) would run on, and stall, the thread reading responses.
+  // Cancelling the returned future stops waiting for the response.
   public CompletableFuture<Void> sendAsync(ChromeRequest request) {
-    return CompletableFuture.runAsync(
-      () -> {
-        sendChromeRequest(request);
-        websocket.getResponse(request.getId());
-      },
-      executorService
+    CompletableFuture<ChromeMessage> response = sendChromeRequestAsync(request);
+    return ChromeFutures.cancelWith(
+      response.thenApplyAsync(ignored -> null, executorService),
+      response
     );
   }
 
@@ -169,71 +359,184 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     ChromeRequest request,
     TypeReference<T> valueType
   ) {
-    return CompletableFuture.supplyAsync(
-      () -> {
-        sendChromeRequest(request);
-        return parseChromeResponse(websocket.getResponse(request.getId()), valueType);
-      },
-      executorService
+    return sendAndReadAsync(request, valueType.getType());
+  }
+
+  @Override
+  public <T> CompletableFuture<T> sendAsync(ChromeRequest request, JavaType valueType) {
+    return sendAndReadAsync(request, valueType);
+  }
+
+  private <T> CompletableFuture<T> sendAndReadAsync(
+    ChromeRequest request,
+    Type valueType
+  ) {
+    CompletableFuture<ChromeMessage> response = sendChromeRequestAsync(request);
+    return ChromeFutures.cancelWith(
+      response.thenApplyAsync(
+        message -> parseChromeResponse(message, valueType),
+        executorService
+      ),
+      response
+    );
+  }
+
+  /**
+   * Sends commands with a deadline of `timeoutMillis` instead of the action timeout,
+   * e.g. `session.withTimeout(500).domain(Runtime::new).evaluate("1 + 1")`.
+   */
+  public ChromeTimeoutScope withTimeout(long timeoutMillis) {
+    return new ChromeTimeoutScope(this, objectMapper, timeoutMillis);
+  }
+
+  /**
+   * Starts a batch of commands that are written to chrome back to back. See
+   * {@link ChromeBatch}.
+   */
+  public ChromeBatch newBatch() {
+    return new ChromeBatch(this, objectMapper);
+  }
+
+  /**
+   * Writes all of `requests` without waiting for responses in between, and returns a
+   * future that completes once every one of them has.
+   */
+  public CompletableFuture<Void> sendAllAsync(List<ChromeRequest> requests) {
+    return CompletableFuture.allOf(
+      requests.stream().map(this::sendAsync).toArray(CompletableFuture[]::new)
+    );
+  }
+
+  public void sendAll(List<ChromeRequest> requests) {
+    ChromeWebSocketClient.await(sendAllAsync(requests));
+  }
+
+  private CompletableFuture<ChromeMessage> sendChromeRequestAsync(ChromeRequest request) {
+    return sendChromeRequestAsync(
+      request,
+      () -> websocket.expectResponse(request)
+    );
+  }
+
+  private CompletableFuture<ChromeMessage> sendChromeRequestAsync(
+    ChromeRequest request,
+    Supplier<CompletableFuture<ChromeMessage>> expectResponse
+  ) {
+    long timeoutMillis = websocket.timeoutMillis(request);
+    return inFlightLimiter.submit(
+      () ->
+        websocket
+          .getInFlightLimiter()
+          .submit(
+            () -> {
+              // Register interest before writing so a fast reply can never slip past us.
+              CompletableFuture<ChromeMessage> response = expectResponse.get();
+              try {
+                sendChromeRequest(request);
+              } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+                return response;
+              }
+              recordCompletion(request, response);
+              return response;
+            },
+            timeoutMillis
+          ),
+      timeoutMillis
     );
   }
 
   private void sendChromeRequest(ChromeRequest request) {
     try {
-      String json = objectMapper.writeValueAsString(request);
-      LOG.trace("Sending request: {}", json);
-      websocket.send(json);
+      if (sessionId != null) {
+        request.setSessionId(sessionId.getValue());
+      }
+      byte[] json = objectMapper.writeValueAsBytes(request);
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Sending request: {}", new String(json, StandardCharsets.UTF_8));
+      }
+      websocket.sendText(json);
+      websocket.getMetrics().commandSent(request.getMethod(), sessionId, json.length);
     } catch (IOException e) {
       throw new ChromeDevToolsException(e);
     }
   }
 
-  private <T> T parseChromeResponse(ChromeResponse response, TypeReference<T> valueType) {
-    // Most methods return a single element of data. To eliminate the user needing to access this
-    // single element via a pass through method, we skip the root node and map the element's data right
-    // into the data structure we want (i.e. we don't parse the root node itself).
-    //
-    //   e.g. { "result" : { "browserContextId" : "some_id" } }
-    //                               ^--- ignore      ^--- consume directly so user can act directly on string
-    //
-    //       Allows the user to do `callingMethod()` instead of `callingMethod().getBrowserContextId()`.
-    //
-    // If this fails, then the method is one of the few cases where there are multiple
-    // results that need to be mapped into a parent data structure.
-    //
-    //   e.g. { "result" : { "protocolVersion" : "1.2.3" }, { "jsVersion" : "6.6.8" } }
-    //                    |__________________________________________________________|
-    //                                       `--------- must consume all so user can select which element to work with
-    //
-    //       Here the user must do `callingMethod().getProtocolVersion()` or `someMethod().getJsVersion()`.
-    Iterator<JsonNode> elements = response.getResult().elements();
-    JsonNode first = elements.next();
+  private void recordCompletion(
+    ChromeRequest request,
+    CompletableFuture<ChromeMessage> response
+  ) {
+    ChromeDevToolsMetrics metrics = websocket.getMetrics();
+    if (metrics == ChromeDevToolsMetrics.NOOP) {
+      return;
+    }
+    long sentAtNanos = System.nanoTime();
+    response.whenComplete((message, throwable) ->
+      metrics.commandCompleted(
+        request.getMethod(),
+        outcomeOf(throwable),
+        System.nanoTime() - sentAtNanos
+      )
+    );
+  }
+
+  private static CommandOutcome outcomeOf(@Nullable Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      throwable = throwable.getCause();
+    }
+    if (throwable == null) {
+      return CommandOutcome.SUCCESS;
+    } else if (throwable instanceof TimeoutException) {
+      return CommandOutcome.TIMEOUT;
+    } else if (throwable instanceof CancellationException) {
+      return CommandOutcome.CANCELLED;
+    } else {
+      return CommandOutcome.ERROR;
+    }
+  }
+
+  private <T> T parseChromeResponse(ChromeMessage response, Type valueType) {
     try {
-      // We do our best to predict which kind of result to consume the response as, but there's
-      // a small chance that a multi-result response has optional, absent members, and we try and
-      // fail to parse it as a single-result response, which is why we catch the inner JsonMappingException.
-      if (elements.hasNext()) {
-        return objectMapper.readValue(response.getResult().toString(), valueType);
-      } else {
-        return objectMapper.readValue(objectMapper.treeAsTokens(first), valueType);
-      }
-    } catch (JsonMappingException e) {
-      try {
-        return objectMapper.readValue(response.getResult().toString(), valueType);
-      } catch (IOException e1) {
-        throw new ChromeDevToolsException(e1);
-      }
-    } catch (IOException e2) {
-      throw new ChromeDevToolsException(e2);
+      return resultReader.read(response.getResult(), valueType);
+    } catch (IOException e) {
+      throw new ChromeDevToolsException(e);
     }
   }
 
   @Override
   public void close() throws Exception {
-    chromeEventListeners.clear();
+    if (sessionId != null) {
+      websocket.removeEventListeners(sessionId);
+      websocket.getMetrics().sessionClosed(sessionId);
+      if (!websocket.isOpen()) {
+        return;
+      }
+      if (browserContextId != null) {
+        parent.getTarget().disposeBrowserContext(browserContextId);
+      } else {
+        parent.getTarget().detachFromTarget(sessionId);
+      }
+      return;
+    }
+    eventListeners.clear();
     websocket.closeBlocking();
   }
 
+  /**
+   * The number of this session's commands awaiting a response.
+   */
+  public int getInFlightCommandCount() {
+    return inFlightLimiter.getInFlightCount();
+  }
+
+  /**
+   * The number of this session's commands waiting for its in-flight limit, or the
+   * connection's, to let them be written.
+   */
+  public int getQueuedCommandCount() {
+    return inFlightLimiter.getQueuedCount();
+  }
+
   public boolean isConnected() {
     return websocket.isOpen();
   }
@@ -345,6 +648,73 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     return Base64.getDecoder().decode(data);
   }
 
+  /**
+   * Captures a screenshot and writes the decoded image to `out` as the response is read,
+   * so neither the base64 text nor the whole image is ever held in memory. `out` is not
+   * closed.
+   *
+   * `out` is written on the thread reading the websocket, so it must not block: a slow
+   * sink holds up every response and event on the connection, including those of other
+   * targets attached to it. If writing fails, this throws once the response is read.
+   */
+  public void captureScreenshot(FileExtension extension, OutputStream out) {
+    ChromeRequest request = new ChromeRequest("Page.captureScreenshot")
+      .putParams("format", extension.name().toLowerCase());
+    ChromeResultSink sink = new ChromeResultSink(out);
+    ChromeWebSocketClient.await(
+      sendChromeRequestAsync(
+        request,
+        () ->
+          websocket.expectResponse(
+            request,
+            ChromeResultHandler.decodeBase64("data", sink)
+          )
+      )
+    );
+    sink.throwIfFailed("screenshot");
+  }
+
+  /**
+   * As {@link #captureScreenshot(FileExtension, OutputStream)}: `channel` is written on
+   * the thread reading the websocket, so it must not block.
+   */
+  public void captureScreenshot(FileExtension extension, WritableByteChannel channel) {
+    captureScreenshot(extension, Channels.newOutputStream(channel));
+  }
+
+  /**
+   * Captures a screenshot into `buffer`, starting at its current position. Fails if the
+   * image doesn't fit in the buffer's remaining space.
+   *
+   * As with {@link #captureScreenshot(FileExtension, OutputStream)}, `buffer` is written
+   * on the thread reading the websocket, so it mustn't be shared with other threads until
+   * this returns.
+   */
+  public void captureScreenshot(FileExtension extension, ByteBuffer buffer) {
+    captureScreenshot(
+      extension,
+      new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+          if (length > buffer.remaining()) {
+            throw new IOException(
+              String.format(
+                "Screenshot doesn't fit in the %s bytes left in the buffer",
+                buffer.remaining()
+              )
+            );
+          }
+          buffer.put(bytes, offset, length);
+        }
+      }
+    );
+  }
+
   public byte[] printToPDF() {
     PrintToPDFResult result = getPage()
       .printToPDF(
@@ -367,6 +737,62 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     return Base64.getDecoder().decode(result.data);
   }
 
+  /**
+   * Prints the page to PDF and writes it to `out` as it is read from Chrome. Chrome is
+   * asked to hold the document as a stream, which is read in chunks of at most
+   * `DEFAULT_STREAM_CHUNK_BYTES`, so memory use doesn't grow with the document's size.
+   * `out` is not closed.
+   */
+  public void printToPDF(OutputStream out) {
+    PrintToPDFResult result = getPage()
+      .printToPDF(
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        "ReturnAsStream"
+      );
+    readStream(result.stream, out);
+  }
+
+  public void printToPDF(WritableByteChannel channel) {
+    printToPDF(Channels.newOutputStream(channel));
+  }
+
+  /**
+   * Copies the contents of an `IO.StreamHandle` to `out` one chunk at a time, closing the
+   * handle once it has been read or if anything goes wrong.
+   */
+  public void readStream(StreamHandle handle, OutputStream out) {
+    IO io = getIO();
+    try {
+      ReadResult chunk;
+      do {
+        chunk = io.read(handle, null, DEFAULT_STREAM_CHUNK_BYTES);
+        if (Boolean.TRUE.equals(chunk.base64Encoded)) {
+          out.write(Base64.getDecoder().decode(chunk.data));
+        } else {
+          out.write(chunk.data.getBytes(StandardCharsets.UTF_8));
+        }
+      } while (!chunk.eof);
+      out.flush();
+    } catch (IOException e) {
+      throw new ChromeDevToolsException(e);
+    } finally {
+      io.close(handle);
+    }
+  }
+
   public String getId() {
     return id.toString();
   }
@@ -376,7 +802,7 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     ChromeEventListener chromeEventListener
   ) {
     if (chromeEventListener != null && listenerId != null) {
-      chromeEventListeners.put(listenerId, chromeEventListener);
+      eventListeners.addListener(listenerId, chromeEventListener);
     } else {
       LOG.warn("Event listener or listenerId was null, not adding");
     }
@@ -404,9 +830,13 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       "ChromeDevToolsSession-%s-%sConsumer-%s",
       id,
       eventType.getClazz().toString(),
-      chromeEventListeners.size() + 1
+      listenerCount.incrementAndGet()
+    );
+    addEventListener(
+      listenerId,
+      eventType,
+      createEventListener(eventType, eventConsumer)
     );
-    addEventListener(listenerId, createEventListener(eventType, eventConsumer));
     return listenerId;
   }
 
@@ -418,21 +848,31 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       "ChromeDevToolsSession-%s-%sConsumer-%s",
       id,
       eventType.getClazz().toString(),
-      chromeEventListeners.size() + 1
+      listenerCount.incrementAndGet()
+    );
+    addEventListener(
+      listenerId,
+      eventType,
+      createEventListener(eventType, eventConsumer)
     );
-    addEventListener(listenerId, createEventListener(eventType, eventConsumer));
     return listenerId;
   }
 
+  private void addEventListener(
+    String listenerId,
+    EventType eventType,
+    ChromeEventListener chromeEventListener
+  ) {
+    eventListeners.addListener(listenerId, eventType, chromeEventListener);
+  }
+
   private <T> ChromeEventListener createEventListener(
     EventType eventType,
     Consumer<T> eventConsumer
   ) {
     return (type, event) -> {
       try {
-        if (type == eventType) {
-          eventConsumer.accept((T) event);
-        }
+        eventConsumer.accept((T) event);
       } catch (Throwable t) {
         LOG.warn("Could not get {}", eventType.getClazz().toString(), t);
       }
@@ -452,9 +892,7 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       @Override
       public void onEvent(SessionID sessionId, EventType type, Event event) {
         try {
-          if (type == eventType) {
-            eventConsumer.accept(sessionId, (T) event);
-          }
+          eventConsumer.accept(sessionId, (T) event);
         } catch (Throwable t) {
           LOG.warn("Could not get {}", eventType.getClazz().toString(), t);
         }
@@ -462,9 +900,13 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     };
   }
 
+  void clearEventListeners() {
+    eventListeners.clear();
+  }
+
   public void removeEventListener(String listenerId) {
     if (listenerId != null) {
-      chromeEventListeners.remove(listenerId);
+      eventListeners.removeListener(listenerId);
     }
   }
 
@@ -498,9 +940,9 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       "ChromeDevToolsSession-%s-%sCollector-%s",
       id,
       eventType.getClazz().toString(),
-      chromeEventListeners.size() + 1
+      listenerCount.incrementAndGet()
     );
-    addEventListener(listenerId, createEventListener(eventType, events::add));
+    addEventListener(listenerId, eventType, createEventListener(eventType, events::add));
     return listenerId;
   }
 
@@ -575,7 +1017,8 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     double top = Math.floor(content.getValue().get(1).doubleValue());
     int clickCount = 1;
     Input input = getInput();
-    input.dispatchMouseEvent(
+    // Written back to back; chrome handles them in order.
+    CompletableFuture<Void> pressed = input.dispatchMouseEventAsync(
       "mousePressed",
       left,
       top,
@@ -593,7 +1036,7 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       null,
       null
     );
-    input.dispatchMouseEvent(
+    CompletableFuture<Void> released = input.dispatchMouseEventAsync(
       "mouseReleased",
       left,
       top,
@@ -611,6 +1054,7 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
       null,
       null
     );
+    ChromeWebSocketClient.await(CompletableFuture.allOf(pressed, released));
     return true;
   }
 
@@ -636,145 +1080,162 @@ public class ChromeDevToolsSession implements ChromeSessionCore {
     return Objects.hash(websocket);
   }
 
+  // The domain classes only hold the session and its mapper, so each is made on first use
+  // and handed out from then on. Helpers like click() ask for them several times over.
+  private <D> D domain(
+    Class<D> domainType,
+    BiFunction<ChromeSessionCore, ObjectMapper, D> domainFactory
+  ) {
+    Object domain = domains.get(domainType);
+    if (domain == null) {
+      domain =
+        domains.computeIfAbsent(
+          domainType,
+          type -> domainFactory.apply(this, objectMapper)
+        );
+    }
+    return domainType.cast(domain);
+  }
+
   // Note: I've left out two deprecated classes. This could make it harder for users
   // to transition, but if they're transitioning to this anyways, they may as well.
   public Accessibility getAccessibility() {
-    return new Accessibility(this, objectMapper);
+    return domain(Accessibility.class, Accessibility::new);
   }
 
   public Animation getAnimation() {
-    return new Animation(this, objectMapper);
+    return domain(Animation.class, Animation::new);
   }
 
   public Audits getAudits() {
-    return new Audits(this, objectMapper);
+    return domain(Audits.class, Audits::new);
   }
 
   public Browser getBrowser() {
-    return new Browser(this, objectMapper);
+    return domain(Browser.class, Browser::new);
   }
 
   public CacheStorage getCacheStorage() {
-    return new CacheStorage(this, objectMapper);
+    return domain(CacheStorage.class, CacheStorage::new);
   }
 
   public CSS getCSS() {
-    return new CSS(this, objectMapper);
+    return domain(CSS.class, CSS::new);
   }
 
   public Debugger getDebugger() {
-    return new Debugger(this, objectMapper);
+    return domain(Debugger.class, Debugger::new);
   }
 
   public DeviceOrientation getDeviceOrientation() {
-    return new DeviceOrientation(this, objectMapper);
+    return domain(DeviceOrientation.class, DeviceOrientation::new);
   }
 
   public DOM getDOM() {
-    return new DOM(this, objectMapper);
+    return domain(DOM.class, DOM::new);
   }
 
   public DOMDebugger getDOMDebugger() {
-    return new DOMDebugger(this, objectMapper);
+    return domain(DOMDebugger.class, DOMDebugger::new);
   }
 
   public DOMSnapshot getDOMSnapshot() {
-    return new DOMSnapshot(this, objectMapper);
+    return domain(DOMSnapshot.class, DOMSnapshot::new);
   }
 
   public DOMStorage getDOMStorage() {
-    return new DOMStorage(this, objectMapper);
+    return domain(DOMStorage.class, DOMStorage::new);
   }
 
   public Emulation getEmulation() {
-    return new Emulation(this, objectMapper);
+    return domain(Emulation.class, Emulation::new);
   }
 
   public HeadlessExperimental getHeadlessExperimental() {
-    return new HeadlessExperimental(this, objectMapper);
+    return domain(HeadlessExperimental.class, HeadlessExperimental::new);
   }
 
   public HeapProfiler getHeapProfiler() {
-    return new HeapProfiler(this, objectMapper);
+    return domain(HeapProfiler.class, HeapProfiler::new);
   }
 
   public IndexedDB getIndexedDB() {
-    return new IndexedDB(this, objectMapper);
+    return domain(IndexedDB.class, IndexedDB::new);
   }
 
   public Input getInput() {
-    return new Input(this, objectMapper);
+    return domain(Input.class, Input::new);
   }
 
   public Inspector getInspector() {
-    return new Inspector(this, objectMapper);
+    return domain(Inspector.class, Inspector::new);
   }
 
   public IO getIO() {
-    return new IO(this, objectMapper);
+    return domain(IO.class, IO::new);
   }
 
   public LayerTree getLayerTree() {
-    return new LayerTree(this, objectMapper);
+    return domain(LayerTree.class, LayerTree::new);
   }
 
   public Log getLog() {
-    return new Log(this, objectMapper);
+    return domain(Log.class, Log::new);
   }
 
   public Memory getMemory() {
-    return new Memory(this, objectMapper);
+    return domain(Memory.class, Memory::new);
   }
 
   public Network getNetwork() {
-    return new Network(this, objectMapper);
+    return domain(Network.class, Network::new);
   }
 
   public Overlay getOverlay() {
-    return new Overlay(this, objectMapper);
+    return domain(Overlay.class, Overlay::new);
   }
 
   public Page getPage() {
-    return new Page(this, objectMapper);
+    return domain(Page.class, Page::new);
   }
 
   public Performance getPerformance() {
-    return new Performance(this, objectMapper);
+    return domain(Performance.class, Performance::new);
   }
 
   public Profiler getProfiler() {
-    return new Profiler(this, objectMapper);
+    return domain(Profiler.class, Profiler::new);
   }
 
   public Runtime getRuntime() {
-    return new Runtime(this, objectMapper);
+    return domain(Runtime.class, Runtime::new);
   }
 
   public Security getSecurity() {
-    return new Security(this, objectMapper);
+    return domain(Security.class, Security::new);
   }
 
   public ServiceWorker getServiceWorker() {
-    return new ServiceWorker(this, objectMapper);
+    return domain(ServiceWorker.class, ServiceWorker::new);
   }
 
   public Storage getStorage() {
-    return new Storage(this, objectMapper);
+    return domain(Storage.class, Storage::new);
   }
 
   public SystemInfo getSystemInfo() {
-    return new SystemInfo(this, objectMapper);
+    return domain(SystemInfo.class, SystemInfo::new);
   }
 
   public Target getTarget() {
-    return new Target(this, objectMapper);
+    return domain(Target.class, Target::new);
   }
 
   public Tethering getTethering() {
-    return new Tethering(this, objectMapper);
+    return domain(Tethering.class, Tethering::new);
   }
 
   public Tracing getTracing() {
-    return new Tracing(this, objectMapper);
+    return domain(Tracing.class, Tracing::new);
   }
 }
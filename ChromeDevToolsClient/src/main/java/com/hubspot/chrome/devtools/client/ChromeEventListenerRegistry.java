@@ -0,0 +1,229 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.target.DetachedFromTargetEvent;
+import com.hubspot.chrome.devtools.client.core.target.SessionID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the event listeners of a connection, indexed by the {@link EventType} they care
+ * about, so an incoming event is matched with a single lookup and only costs an executor
+ * task when something is actually subscribed to it. Listeners added without a type see
+ * every event.
+ *
+ * A connection has a root registry plus one per attached target session. The session
+ * registries keep a shared count of their listeners, so the decoder can tell whether
+ * anyone on the connection wants an event before it knows which session it belongs to.
+ *
+ * Each session's events are delivered through a serial lane on the executor, so
+ * listeners see them one at a time and in the order chrome sent them, while different
+ * sessions are still delivered in parallel.
+ */
+final class ChromeEventListenerRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    ChromeEventListenerRegistry.class
+  );
+
+  private final Map<String, ChromeEventListener> wildcardListeners;
+  private final Map<EventType, Map<String, ChromeEventListener>> typedListeners;
+  private final Map<String, EventType> listenerEventTypes;
+  private final ExecutorService executorService;
+  private final SessionSubscriptions sessionSubscriptions;
+  private final boolean isSessionRegistry;
+  private final Executor lane;
+  private final Map<String, Executor> sessionLanes;
+
+  ChromeEventListenerRegistry(
+    Map<String, ChromeEventListener> wildcardListeners,
+    ExecutorService executorService
+  ) {
+    this(wildcardListeners, executorService, new SessionSubscriptions(), false);
+  }
+
+  private ChromeEventListenerRegistry(
+    Map<String, ChromeEventListener> wildcardListeners,
+    ExecutorService executorService,
+    SessionSubscriptions sessionSubscriptions,
+    boolean isSessionRegistry
+  ) {
+    this.wildcardListeners = wildcardListeners;
+    this.typedListeners = new ConcurrentHashMap<>();
+    this.listenerEventTypes = new ConcurrentHashMap<>();
+    this.executorService = executorService;
+    this.sessionSubscriptions = sessionSubscriptions;
+    this.isSessionRegistry = isSessionRegistry;
+    this.lane = MoreExecutors.newSequentialExecutor(executorService);
+    this.sessionLanes = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Creates an empty registry for another session on the same connection.
+   */
+  ChromeEventListenerRegistry newSessionRegistry() {
+    return new ChromeEventListenerRegistry(
+      new ConcurrentHashMap<>(),
+      executorService,
+      sessionSubscriptions,
+      true
+    );
+  }
+
+  void addListener(String listenerId, ChromeEventListener listener) {
+    removeListener(listenerId);
+    wildcardListeners.put(listenerId, listener);
+    if (isSessionRegistry) {
+      sessionSubscriptions.wildcard.incrementAndGet();
+    }
+  }
+
+  void addListener(String listenerId, EventType eventType, ChromeEventListener listener) {
+    removeListener(listenerId);
+    listenerEventTypes.put(listenerId, eventType);
+    typedListeners
+      .computeIfAbsent(eventType, ignored -> new ConcurrentHashMap<>())
+      .put(listenerId, listener);
+    if (isSessionRegistry) {
+      sessionSubscriptions.typed(eventType).incrementAndGet();
+    }
+  }
+
+  void removeListener(String listenerId) {
+    boolean removed = wildcardListeners.remove(listenerId) != null;
+    if (removed && isSessionRegistry) {
+      sessionSubscriptions.wildcard.decrementAndGet();
+    }
+    EventType eventType = listenerEventTypes.remove(listenerId);
+    if (eventType != null) {
+      typedListeners.get(eventType).remove(listenerId);
+      if (isSessionRegistry) {
+        sessionSubscriptions.typed(eventType).decrementAndGet();
+      }
+    }
+  }
+
+  void clear() {
+    wildcardListeners.keySet().forEach(this::removeListener);
+    listenerEventTypes.keySet().forEach(this::removeListener);
+  }
+
+  boolean hasListeners(EventType eventType) {
+    return !wildcardListeners.isEmpty() || hasTypedListeners(eventType);
+  }
+
+  /**
+   * Whether this registry or any session registry created from it has a listener for
+   * `eventType`.
+   */
+  boolean hasConnectionListeners(EventType eventType) {
+    return (
+      hasListeners(eventType) ||
+      sessionSubscriptions.has(eventType) ||
+      isDetachingLane(eventType)
+    );
+  }
+
+  /**
+   * Hands `event` to every interested listener in one task on the lane of `sessionId`.
+   * Nothing is submitted when no one is listening.
+   */
+  void dispatch(@Nullable SessionID sessionId, EventType eventType, Event event) {
+    if (hasListeners(eventType)) {
+      lane(sessionId).execute(() -> deliver(sessionId, eventType, event));
+    }
+    // Sessions chrome attached or detached on its own are never closed through us
+    if (isDetachingLane(eventType)) {
+      SessionID detached = ((DetachedFromTargetEvent) event).getSessionId();
+      if (detached != null) {
+        removeLane(detached);
+      }
+    }
+  }
+
+  /**
+   * Drops the lane of a detached session. Events already queued on it are still
+   * delivered.
+   */
+  void removeLane(SessionID sessionId) {
+    sessionLanes.remove(sessionId.getValue());
+  }
+
+  int getSessionLaneCount() {
+    return sessionLanes.size();
+  }
+
+  private boolean isDetachingLane(EventType eventType) {
+    return (
+      eventType == EventType.TARGET_DETACHED_FROM_TARGET && !sessionLanes.isEmpty()
+    );
+  }
+
+  // A session registry only ever sees its own session's events, so one lane will do.
+  // The root registry sees every session's and keeps a lane for each.
+  private Executor lane(@Nullable SessionID sessionId) {
+    if (isSessionRegistry || sessionId == null) {
+      return lane;
+    }
+    return sessionLanes.computeIfAbsent(
+      sessionId.getValue(),
+      ignored -> MoreExecutors.newSequentialExecutor(executorService)
+    );
+  }
+
+  private void deliver(@Nullable SessionID sessionId, EventType eventType, Event event) {
+    Map<String, ChromeEventListener> listeners = typedListeners.get(eventType);
+    if (listeners != null) {
+      listeners
+        .values()
+        .forEach(listener -> deliver(listener, sessionId, eventType, event));
+    }
+    wildcardListeners
+      .values()
+      .forEach(listener -> deliver(listener, sessionId, eventType, event));
+  }
+
+  private static void deliver(
+    ChromeEventListener listener,
+    @Nullable SessionID sessionId,
+    EventType eventType,
+    Event event
+  ) {
+    try {
+      listener.onEvent(sessionId, eventType, event);
+    } catch (Throwable t) {
+      LOG.warn("Event listener failed to handle {}", eventType, t);
+    }
+  }
+
+  private boolean hasTypedListeners(EventType eventType) {
+    Map<String, ChromeEventListener> listeners = typedListeners.get(eventType);
+    return listeners != null && !listeners.isEmpty();
+  }
+
+  private static final class SessionSubscriptions {
+
+    private final AtomicInteger wildcard = new AtomicInteger();
+    private final Map<EventType, AtomicInteger> typed = new ConcurrentHashMap<>();
+
+    private AtomicInteger typed(EventType eventType) {
+      return typed.computeIfAbsent(eventType, ignored -> new AtomicInteger());
+    }
+
+    private boolean has(EventType eventType) {
+      if (wildcard.get() > 0) {
+        return true;
+      }
+      AtomicInteger count = typed.get(eventType);
+      return count != null && count.get() > 0;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.hubspot.chrome.devtools.client;
+
+import java.util.concurrent.CompletableFuture;
+
+final class ChromeFutures {
+
+  private ChromeFutures() {}
+
+  /**
+   * Completes `target` the way `source` completes. Cancelling `target` cancels `source`,
+   * which for a command means it stops waiting for its response.
+   */
+  static <T> void relay(CompletableFuture<T> source, CompletableFuture<T> target) {
+    source.whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        target.completeExceptionally(throwable);
+      } else {
+        target.complete(value);
+      }
+    });
+    cancelWith(target, source);
+  }
+
+  /**
+   * Cancels `source` if `dependent`, a stage derived from it, is cancelled. Plain
+   * `CompletableFuture` stages don't pass cancellation back up the chain.
+   */
+  static <T> CompletableFuture<T> cancelWith(
+    CompletableFuture<T> dependent,
+    CompletableFuture<?> source
+  ) {
+    dependent.whenComplete((value, throwable) -> {
+      if (dependent.isCancelled()) {
+        source.cancel(false);
+      }
+    });
+    return dependent;
+  }
+}
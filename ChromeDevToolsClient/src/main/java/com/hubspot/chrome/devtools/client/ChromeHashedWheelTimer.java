@@ -0,0 +1,231 @@
+package com.hubspot.chrome.devtools.client;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks after a delay on a single thread, with the deadlines of pending tasks kept
+ * in a ring of buckets that the thread steps through once per tick. Scheduling and
+ * cancelling are O(1), so every command awaiting a response can have its own deadline
+ * without costing a thread or a heap operation each. Deadlines are only as precise as a
+ * tick.
+ *
+ * Tasks run on the timer thread and must be quick: anything that might do real work,
+ * like completing a future whose callbacks write to a socket, should be handed to an
+ * executor.
+ */
+final class ChromeHashedWheelTimer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeHashedWheelTimer.class);
+
+  private static final ChromeHashedWheelTimer SHARED = new ChromeHashedWheelTimer(
+    "ChromeHashedWheelTimer",
+    10,
+    TimeUnit.MILLISECONDS,
+    512
+  );
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Queue<Timeout> added;
+  private final Queue<Timeout> cancelled;
+  private final AtomicInteger pendingCount;
+  private final AtomicBoolean started;
+  private final Thread worker;
+  private final long startNanos;
+
+  ChromeHashedWheelTimer(
+    String name,
+    long tickDuration,
+    TimeUnit unit,
+    int ticksPerWheel
+  ) {
+    if (Integer.bitCount(ticksPerWheel) != 1) {
+      throw new IllegalArgumentException(
+        "ticksPerWheel must be a power of two: " + ticksPerWheel
+      );
+    }
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.wheel = new Bucket[ticksPerWheel];
+    for (int i = 0; i < ticksPerWheel; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = ticksPerWheel - 1;
+    this.added = new ConcurrentLinkedQueue<>();
+    this.cancelled = new ConcurrentLinkedQueue<>();
+    this.pendingCount = new AtomicInteger();
+    this.started = new AtomicBoolean();
+    this.worker = new Thread(this::run, name);
+    this.worker.setDaemon(true);
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * The timer every websocket shares. Its thread starts with the first timeout and runs
+   * for the life of the JVM.
+   */
+  static ChromeHashedWheelTimer shared() {
+    return SHARED;
+  }
+
+  Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+    if (started.compareAndSet(false, true)) {
+      worker.start();
+    }
+    Timeout timeout = new Timeout(
+      task,
+      System.nanoTime() - startNanos + unit.toNanos(delay)
+    );
+    pendingCount.incrementAndGet();
+    added.add(timeout);
+    return timeout;
+  }
+
+  int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  private void run() {
+    long tick = 0;
+    while (true) {
+      long deadline = tickNanos * (tick + 1);
+      long sleepNanos = deadline - (System.nanoTime() - startNanos);
+      if (sleepNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          // Only ever interrupted by accident; keep ticking
+        }
+        continue;
+      }
+      removeCancelled();
+      transferAdded(tick);
+      wheel[(int) (tick & mask)].expire(deadline);
+      tick++;
+    }
+  }
+
+  private void removeCancelled() {
+    Timeout timeout;
+    while ((timeout = cancelled.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  private void transferAdded(long tick) {
+    Timeout timeout;
+    while ((timeout = added.poll()) != null) {
+      if (timeout.state.get() != Timeout.PENDING) {
+        continue;
+      }
+      long expiryTick = timeout.deadlineNanos / tickNanos;
+      timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+      // Deadlines that have already passed go in the current bucket.
+      wheel[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+    }
+  }
+
+  final class Timeout {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final Runnable task;
+    private final long deadlineNanos;
+    private final AtomicInteger state;
+
+    // Only touched by the timer thread
+    private long remainingRounds;
+    private Bucket bucket;
+    private Timeout next;
+    private Timeout prev;
+
+    private Timeout(Runnable task, long deadlineNanos) {
+      this.task = task;
+      this.deadlineNanos = deadlineNanos;
+      this.state = new AtomicInteger(PENDING);
+    }
+
+    /**
+     * Stops the task from running, if it hasn't yet. The timeout is unlinked from its
+     * bucket on the next tick.
+     */
+    void cancel() {
+      if (state.compareAndSet(PENDING, CANCELLED)) {
+        pendingCount.decrementAndGet();
+        cancelled.add(this);
+      }
+    }
+
+    private void expire() {
+      if (!state.compareAndSet(PENDING, EXPIRED)) {
+        return;
+      }
+      pendingCount.decrementAndGet();
+      try {
+        task.run();
+      } catch (Throwable t) {
+        LOG.warn("Timer task failed", t);
+      }
+    }
+  }
+
+  // A doubly linked list, so cancelled timeouts can be unlinked without a search.
+  private static final class Bucket {
+
+    private Timeout head;
+    private Timeout tail;
+
+    private void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+      }
+      tail = timeout;
+    }
+
+    private void remove(Timeout timeout) {
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+      timeout.bucket = null;
+      timeout.next = null;
+      timeout.prev = null;
+    }
+
+    private void expire(long deadlineNanos) {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadlineNanos) {
+          remove(timeout);
+          timeout.expire();
+        } else if (timeout.state.get() != Timeout.PENDING) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+    }
+  }
+}
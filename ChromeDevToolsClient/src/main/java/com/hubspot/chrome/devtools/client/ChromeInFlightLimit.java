@@ -0,0 +1,71 @@
+package com.hubspot.chrome.devtools.client;
+
+/**
+ * Caps how many commands may be awaiting a response at once, on a whole connection or on
+ * one session, and what happens to a command sent once the cap is reached.
+ */
+public final class ChromeInFlightLimit {
+
+  public enum OverloadPolicy {
+    /**
+     * The sending thread waits for a slot, failing after the action timeout.
+     */
+    BLOCK,
+    /**
+     * The command fails straight away with a `ChromeDevToolsException`.
+     */
+    FAIL,
+    /**
+     * The command is queued and written, in order, as slots free up. Its timeout counts
+     * from when it was queued.
+     */
+    QUEUE,
+  }
+
+  private static final ChromeInFlightLimit UNLIMITED = new ChromeInFlightLimit(
+    Integer.MAX_VALUE,
+    OverloadPolicy.QUEUE
+  );
+
+  private final int maxInFlight;
+  private final OverloadPolicy overloadPolicy;
+
+  private ChromeInFlightLimit(int maxInFlight, OverloadPolicy overloadPolicy) {
+    this.maxInFlight = maxInFlight;
+    this.overloadPolicy = overloadPolicy;
+  }
+
+  public static ChromeInFlightLimit unlimited() {
+    return UNLIMITED;
+  }
+
+  public static ChromeInFlightLimit of(int maxInFlight, OverloadPolicy overloadPolicy) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    return new ChromeInFlightLimit(maxInFlight, overloadPolicy);
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public OverloadPolicy getOverloadPolicy() {
+    return overloadPolicy;
+  }
+
+  public boolean isUnlimited() {
+    return maxInFlight == Integer.MAX_VALUE;
+  }
+
+  @Override
+  public String toString() {
+    return isUnlimited()
+      ? "ChromeInFlightLimit{unlimited}"
+      : String.format(
+        "ChromeInFlightLimit{maxInFlight=%s, overloadPolicy=%s}",
+        maxInFlight,
+        overloadPolicy
+      );
+  }
+}
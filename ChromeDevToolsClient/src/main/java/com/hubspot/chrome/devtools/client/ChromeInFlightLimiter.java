@@ -0,0 +1,202 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Enforces a {@link ChromeInFlightLimit}. A command holds a slot from when it is written
+ * until its future completes.
+ *
+ * Queued commands are written in the order they were submitted, one at a time, on the
+ * executor, so the websocket reader and the timer thread that free up slots never write
+ * commands themselves. A queued command's deadline starts when it is queued.
+ */
+final class ChromeInFlightLimiter {
+
+  private final ChromeInFlightLimit limit;
+  private final long actionTimeoutMillis;
+  private final Executor starter;
+  private final Executor executor;
+  private final ChromeHashedWheelTimer timer;
+  private final Semaphore slots;
+  private final Queue<QueuedCommand<?>> queued;
+  // Queued commands that haven't been written yet, including any about to be
+  private final AtomicInteger queuedCount;
+  private final AtomicInteger drainRequests;
+
+  ChromeInFlightLimiter(
+    ChromeInFlightLimit limit,
+    long actionTimeoutMillis,
+    Executor executor,
+    ChromeHashedWheelTimer timer
+  ) {
+    this.limit = limit;
+    this.actionTimeoutMillis = actionTimeoutMillis;
+    this.starter = MoreExecutors.newSequentialExecutor(executor);
+    this.executor = executor;
+    this.timer = timer;
+    this.slots = new Semaphore(limit.getMaxInFlight());
+    this.queued = new ConcurrentLinkedQueue<>();
+    this.queuedCount = new AtomicInteger();
+    this.drainRequests = new AtomicInteger();
+  }
+
+  <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> command) {
+    return submit(command, actionTimeoutMillis);
+  }
+
+  /**
+   * @param timeoutMillis How long a queued command may wait for a slot and then for its
+   *                      response, in all.
+   */
+  <T> CompletableFuture<T> submit(
+    Supplier<CompletableFuture<T>> command,
+    long timeoutMillis
+  ) {
+    if (limit.isUnlimited()) {
+      return command.get();
+    }
+    // Not ahead of commands already queued
+    if (queuedCount.get() == 0 && slots.tryAcquire()) {
+      return start(command);
+    }
+
+    switch (limit.getOverloadPolicy()) {
+      case BLOCK:
+        try {
+          if (slots.tryAcquire(actionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            return start(command);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return CompletableFuture.failedFuture(new ChromeDevToolsException(e));
+        }
+        return CompletableFuture.failedFuture(overloaded());
+      case QUEUE:
+        QueuedCommand<T> queuedCommand = new QueuedCommand<>(command, timeoutMillis);
+        queuedCount.incrementAndGet();
+        queued.add(queuedCommand);
+        drain();
+        return queuedCommand.result;
+      case FAIL:
+      default:
+        return CompletableFuture.failedFuture(overloaded());
+    }
+  }
+
+  int getInFlightCount() {
+    return limit.isUnlimited() ? 0 : limit.getMaxInFlight() - slots.availablePermits();
+  }
+
+  int getQueuedCount() {
+    return queuedCount.get();
+  }
+
+  private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> command) {
+    CompletableFuture<T> result;
+    try {
+      result = command.get();
+    } catch (RuntimeException e) {
+      release();
+      throw e;
+    }
+    result.whenComplete((value, throwable) -> release());
+    return result;
+  }
+
+  private void release() {
+    slots.release();
+    drain();
+  }
+
+  // Called after every enqueue and release, so a command queued just as the last slot
+  // was released is still picked up. Only one caller drains at a time; the others leave
+  // it another pass. It only hands commands to the starter, which writes them in order.
+  private void drain() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int requests = 1;
+    do {
+      while (!queued.isEmpty() && slots.tryAcquire()) {
+        QueuedCommand<?> next = queued.poll();
+        if (next == null) {
+          slots.release();
+          break;
+        }
+        next.dequeued = true;
+        try {
+          starter.execute(next::start);
+        } catch (RejectedExecutionException e) {
+          queuedCount.decrementAndGet();
+          slots.release();
+          next.result.completeExceptionally(new ChromeDevToolsException(e));
+        }
+      }
+      requests = drainRequests.addAndGet(-requests);
+    } while (requests != 0);
+  }
+
+  private ChromeDevToolsException overloaded() {
+    return new ChromeDevToolsException(
+      String.format("Too many commands in flight (%s)", limit)
+    );
+  }
+
+  private final class QueuedCommand<T> {
+
+    private final Supplier<CompletableFuture<T>> command;
+    private final CompletableFuture<T> result;
+    private volatile boolean dequeued;
+
+    private QueuedCommand(Supplier<CompletableFuture<T>> command, long timeoutMillis) {
+      this.command = command;
+      this.result = new CompletableFuture<>();
+      ChromeHashedWheelTimer.Timeout timeout = timer.newTimeout(
+        () -> executor.execute(() -> timeOut(timeoutMillis)),
+        timeoutMillis,
+        TimeUnit.MILLISECONDS
+      );
+      result.whenComplete((value, throwable) -> {
+        timeout.cancel();
+        // Commands cancelled or timed out while queued are never written
+        if (!dequeued && queued.remove(this)) {
+          queuedCount.decrementAndGet();
+        }
+      });
+    }
+
+    private void start() {
+      try {
+        if (result.isDone()) {
+          release();
+          return;
+        }
+        CompletableFuture<T> started = ChromeInFlightLimiter.this.start(command);
+        ChromeFutures.relay(started, result);
+        // Once the deadline set when it was queued passes, stop waiting for the response
+        result.whenComplete((value, throwable) -> started.cancel(false));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      } finally {
+        queuedCount.decrementAndGet();
+      }
+    }
+
+    private void timeOut(long timeoutMillis) {
+      result.completeExceptionally(
+        new TimeoutException(String.format("No response after %sms", timeoutMillis))
+      );
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.hubspot.chrome.devtools.base.ChromeResponse;
+import com.hubspot.chrome.devtools.base.ChromeResponseErrorBody;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.annotation.Nullable;
+
+/**
+ * A single frame received from chrome, as produced by {@link ChromeMessageDecoder}. Event
+ * params have already been bound to their generated type, while a command's result is
+ * kept as buffered tokens until the caller binds it to the type it expects.
+ */
+final class ChromeMessage {
+
+  private final Integer id;
+  private final String sessionId;
+  private final TokenBuffer result;
+  private final ChromeResponseErrorBody error;
+  private final EventType eventType;
+  private final Event event;
+
+  ChromeMessage(
+    @Nullable Integer id,
+    @Nullable String sessionId,
+    @Nullable TokenBuffer result,
+    @Nullable ChromeResponseErrorBody error,
+    @Nullable EventType eventType,
+    @Nullable Event event
+  ) {
+    this.id = id;
+    this.sessionId = sessionId;
+    this.result = result;
+    this.error = error;
+    this.eventType = eventType;
+    this.event = event;
+  }
+
+  @Nullable
+  Integer getId() {
+    return id;
+  }
+
+  @Nullable
+  String getSessionId() {
+    return sessionId;
+  }
+
+  @Nullable
+  TokenBuffer getResult() {
+    return result;
+  }
+
+  @Nullable
+  ChromeResponseErrorBody getError() {
+    return error;
+  }
+
+  @Nullable
+  EventType getEventType() {
+    return eventType;
+  }
+
+  @Nullable
+  Event getEvent() {
+    return event;
+  }
+
+  boolean isResponse() {
+    return id != null && result != null;
+  }
+
+  boolean isEvent() {
+    return eventType != null && event != null;
+  }
+
+  boolean isError() {
+    return error != null;
+  }
+
+  ChromeResponse toResponse() {
+    return ChromeResponse
+      .builder()
+      .setId(id)
+      .setResult(result == null ? null : readTree(result))
+      .setSessionId(sessionId)
+      .setError(error)
+      .build();
+  }
+
+  private static JsonNode readTree(TokenBuffer tokens) {
+    try (JsonParser parser = tokens.asParser()) {
+      return parser.readValueAsTree();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
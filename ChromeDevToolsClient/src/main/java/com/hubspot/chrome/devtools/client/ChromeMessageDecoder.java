@@ -0,0 +1,262 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.hubspot.chrome.devtools.base.ChromeResponseErrorBody;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes chrome frames in a single streaming pass. The envelope fields are picked out as
+ * they go by and event params are bound straight to their generated class, rather than
+ * building a tree of the whole frame and then parsing the frame again to get the event.
+ * Events that no one is subscribed to are skipped over without being bound at all.
+ */
+final class ChromeMessageDecoder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeMessageDecoder.class);
+  private static final Map<String, EventType> EVENT_TYPES = Arrays
+    .stream(EventType.values())
+    .collect(Collectors.toMap(EventType::getType, Function.identity()));
+
+  private final ObjectMapper objectMapper;
+  // Chrome adds to its events all the time, so they're read without failing on
+  // properties or subtypes they don't know, whatever the mapper's own settings
+  private final ObjectReader eventReader;
+  private final Map<EventType, ObjectReader> eventReaders;
+  private final Predicate<EventType> isSubscribed;
+  private final IntFunction<ChromeResultHandler> resultHandlers;
+
+  ChromeMessageDecoder(ObjectMapper objectMapper) {
+    this(objectMapper, eventType -> true, id -> null);
+  }
+
+  ChromeMessageDecoder(
+    ObjectMapper objectMapper,
+    Predicate<EventType> isSubscribed,
+    IntFunction<ChromeResultHandler> resultHandlers
+  ) {
+    this.objectMapper = objectMapper;
+    this.eventReader =
+      objectMapper
+        .reader()
+        .without(
+          DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+          DeserializationFeature.FAIL_ON_INVALID_SUBTYPE
+        );
+    this.eventReaders = new ConcurrentHashMap<>();
+    this.isSubscribed = isSubscribed;
+    this.resultHandlers = resultHandlers;
+  }
+
+  ChromeMessage decode(String message) throws IOException {
+    try (JsonParser parser = objectMapper.createParser(message)) {
+      return decode(parser);
+    }
+  }
+
+  /**
+   * Decodes a message straight from the payloads of the frames it arrived in, so large
+   * replies never exist as a `String`.
+   */
+  ChromeMessage decode(List<ByteBuffer> payloads) throws IOException {
+    try (JsonParser parser = createParser(payloads)) {
+      return decode(parser);
+    }
+  }
+
+  private JsonParser createParser(List<ByteBuffer> payloads) throws IOException {
+    if (payloads.size() == 1 && payloads.get(0).hasArray()) {
+      ByteBuffer payload = payloads.get(0);
+      return objectMapper.createParser(
+        payload.array(),
+        payload.arrayOffset() + payload.position(),
+        payload.remaining()
+      );
+    }
+    return objectMapper.createParser(new ByteBuffersInputStream(payloads));
+  }
+
+  private ChromeMessage decode(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IOException("Expected a JSON object but got " + parser.currentToken());
+    }
+
+    Integer id = null;
+    String method = null;
+    String sessionId = null;
+    TokenBuffer result = null;
+    ChromeResponseErrorBody error = null;
+    Event event = null;
+    TokenBuffer bufferedParams = null;
+    boolean resultBeforeId = false;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "id":
+          id = parser.getIntValue();
+          break;
+        case "method":
+          method = parser.getText();
+          break;
+        case "sessionId":
+          sessionId = parser.getText();
+          break;
+        case "result":
+          ChromeResultHandler resultHandler = id == null
+            ? null
+            : resultHandlers.apply(id);
+          if (resultHandler != null) {
+            resultHandler.read(parser);
+            result = emptyResult();
+          } else {
+            result = buffer(parser);
+            resultBeforeId = id == null;
+          }
+          break;
+        case "error":
+          error = objectMapper.readValue(parser, ChromeResponseErrorBody.class);
+          break;
+        case "params":
+          // Chrome writes `method` ahead of `params`, so we can almost always bind them
+          // directly. If not, hold on to the tokens until we know which type they are.
+          if (method != null) {
+            event = readEvent(method, parser);
+          } else {
+            bufferedParams = buffer(parser);
+          }
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+
+    if (bufferedParams != null && method != null) {
+      try (JsonParser paramsParser = bufferedParams.asParser(objectMapper)) {
+        paramsParser.nextToken();
+        event = readEvent(method, paramsParser);
+      }
+    }
+
+    // Chrome writes `id` ahead of `result`, but in case it didn't the handler gets the
+    // buffered result instead.
+    if (resultBeforeId && id != null) {
+      ChromeResultHandler resultHandler = resultHandlers.apply(id);
+      if (resultHandler != null) {
+        try (JsonParser resultParser = result.asParserOnFirstToken()) {
+          resultHandler.read(resultParser);
+        }
+        result = emptyResult();
+      }
+    }
+
+    // Set even for events nobody listened to, and so were skipped, so they're counted
+    EventType eventType = method == null ? null : EVENT_TYPES.get(method);
+    return new ChromeMessage(id, sessionId, result, error, eventType, event);
+  }
+
+  private Event readEvent(String method, JsonParser parser) throws IOException {
+    EventType eventType = EVENT_TYPES.get(method);
+    if (eventType == null) {
+      LOG.debug("Ignoring unknown event {}", method);
+      parser.skipChildren();
+      return null;
+    }
+    if (!isSubscribed.test(eventType)) {
+      parser.skipChildren();
+      return null;
+    }
+    ObjectReader reader = eventReaders.get(eventType);
+    if (reader == null) {
+      reader =
+        eventReaders.computeIfAbsent(
+          eventType,
+          type -> eventReader.forType(type.getClazz())
+        );
+    }
+    return reader.readValue(parser);
+  }
+
+  private TokenBuffer emptyResult() throws IOException {
+    TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+    tokens.writeStartObject();
+    tokens.writeEndObject();
+    return tokens;
+  }
+
+  private static TokenBuffer buffer(JsonParser parser) throws IOException {
+    TokenBuffer tokens = new TokenBuffer(parser);
+    tokens.copyCurrentStructure(parser);
+    return tokens;
+  }
+
+  /**
+   * Reads a fragmented message across its frame payloads without joining them first.
+   */
+  private static final class ByteBuffersInputStream extends InputStream {
+
+    private final Iterator<ByteBuffer> payloads;
+    private ByteBuffer current;
+
+    private ByteBuffersInputStream(List<ByteBuffer> payloads) {
+      this.payloads = payloads.stream().map(ByteBuffer::duplicate).iterator();
+      this.current = ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public int read() {
+      if (!advance()) {
+        return -1;
+      }
+      return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!advance()) {
+        return -1;
+      }
+      int count = Math.min(length, current.remaining());
+      current.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return current.remaining();
+    }
+
+    private boolean advance() {
+      while (!current.hasRemaining()) {
+        if (!payloads.hasNext()) {
+          return false;
+        }
+        current = payloads.next();
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.ChromeDevToolsMetrics.CommandOutcome;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsMetricsRecorder.LatencyHistogram;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Renders what a {@link ChromeDevToolsMetricsRecorder} has recorded in the Prometheus
+ * text exposition format, for serving from a `/metrics` endpoint:
+ *
+ *    ChromeDevToolsMetricsRecorder recorder = new ChromeDevToolsMetricsRecorder();
+ *    ChromeDevToolsClient client = new ChromeDevToolsClient.Builder()
+ *      .setMetrics(recorder)
+ *      .build();
+ *    ...
+ *    String body = new ChromePrometheusExporter(recorder).scrape();
+ */
+public class ChromePrometheusExporter {
+
+  private static final String PREFIX = "chrome_devtools_";
+
+  private final ChromeDevToolsMetricsRecorder recorder;
+
+  public ChromePrometheusExporter(ChromeDevToolsMetricsRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    write(out);
+    return out.toString();
+  }
+
+  public void write(Appendable out) {
+    try {
+      writeCommands(out);
+      writeEvents(out);
+      writeBytes(out, "bytes_sent_total", recorder.getBytesSent());
+      writeBytes(out, "bytes_received_total", recorder.getBytesReceived());
+      writeGauges(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeCommands(Appendable out) throws IOException {
+    header(out, "commands_in_flight", "gauge", "Commands awaiting a response");
+    sample(out, "commands_in_flight", "", recorder.getInFlightCommandCount());
+
+    header(out, "commands_total", "counter", "Completed commands by outcome");
+    for (Map.Entry<String, Map<CommandOutcome, LongAdder>> entry : sorted(
+      recorder.getCommandCounts()
+    ).entrySet()) {
+      for (Map.Entry<CommandOutcome, LongAdder> count : entry.getValue().entrySet()) {
+        String outcome = count.getKey().name().toLowerCase(Locale.ROOT);
+        sample(
+          out,
+          "commands_total",
+          labels("method", entry.getKey(), "outcome", outcome),
+          count.getValue().sum()
+        );
+      }
+    }
+
+    header(
+      out,
+      "command_latency_seconds",
+      "histogram",
+      "Time from writing a command to its completion"
+    );
+    long[] bounds = ChromeDevToolsMetricsRecorder.LATENCY_BUCKET_MILLIS;
+    for (Map.Entry<String, LatencyHistogram> entry : sorted(
+      recorder.getCommandLatencies()
+    ).entrySet()) {
+      String method = entry.getKey();
+      long[] counts = entry.getValue().getBucketCounts();
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i];
+        String le = i < bounds.length ? Double.toString(bounds[i] / 1000.0) : "+Inf";
+        sample(
+          out,
+          "command_latency_seconds_bucket",
+          labels("method", method, "le", le),
+          cumulative
+        );
+      }
+      sample(
+        out,
+        "command_latency_seconds_sum",
+        labels("method", method),
+        entry.getValue().getSumNanos() / (double) TimeUnit.SECONDS.toNanos(1)
+      );
+      sample(out, "command_latency_seconds_count", labels("method", method), cumulative);
+    }
+  }
+
+  private void writeEvents(Appendable out) throws IOException {
+    header(out, "events_total", "counter", "Events received from chrome");
+    for (Map.Entry<EventType, LongAdder> entry : recorder.getEventCounts().entrySet()) {
+      sample(
+        out,
+        "events_total",
+        labels("event", entry.getKey().getType()),
+        entry.getValue().sum()
+      );
+    }
+  }
+
+  private void writeBytes(Appendable out, String name, Map<String, LongAdder> bytes)
+    throws IOException {
+    header(out, name, "counter", "Websocket message bytes, by flat-mode session");
+    for (Map.Entry<String, LongAdder> entry : sorted(bytes).entrySet()) {
+      sample(out, name, labels("session", entry.getKey()), entry.getValue().sum());
+    }
+  }
+
+  private void writeGauges(Appendable out) throws IOException {
+    for (Map.Entry<String, LongSupplier> entry : sorted(recorder.getGauges())
+      .entrySet()) {
+      header(out, entry.getKey(), "gauge", "");
+      sample(out, entry.getKey(), "", entry.getValue().getAsLong());
+    }
+  }
+
+  private static void header(Appendable out, String name, String type, String help)
+    throws IOException {
+    if (!help.isEmpty()) {
+      out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help);
+      out.append('\n');
+    }
+    out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type);
+    out.append('\n');
+  }
+
+  private static void sample(Appendable out, String name, String labels, Number value)
+    throws IOException {
+    out.append(PREFIX).append(name).append(labels).append(' ');
+    out.append(value.toString()).append('\n');
+  }
+
+  private static String labels(String... namesAndValues) {
+    StringBuilder labels = new StringBuilder("{");
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      if (i > 0) {
+        labels.append(',');
+      }
+      labels.append(namesAndValues[i]).append("=\"");
+      labels.append(escape(namesAndValues[i + 1])).append('"');
+    }
+    return labels.append('}').toString();
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static <V> Map<String, V> sorted(Map<String, V> map) {
+    return new TreeMap<>(map);
+  }
+}
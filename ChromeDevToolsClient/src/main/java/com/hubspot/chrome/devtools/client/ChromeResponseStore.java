@@ -0,0 +1,221 @@
+package com.hubspot.chrome.devtools.client;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pairs the replies read off a websocket with the commands waiting for them, whichever
+ * shows up first. Every entry is either claimed by a waiter, and removed once that waiter
+ * is done, or is a reply nobody has asked for yet, which is evicted if still unclaimed
+ * after `ttlMillis`. Replies for commands whose waiter timed out or was cancelled are
+ * dropped on arrival.
+ */
+final class ChromeResponseStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeResponseStore.class);
+
+  private final ChromeHashedWheelTimer timer;
+  private final Executor executor;
+  private final long ttlMillis;
+  private final Map<Integer, Entry> entries;
+  private final Set<Integer> abandoned;
+  private final AtomicInteger unclaimedCount;
+  private final LongAdder evictedCount;
+
+  /**
+   * @param executor Fails timed out waiters, so whatever they trigger, such as writing
+   *                 the next queued command, stays off the timer thread.
+   */
+  ChromeResponseStore(ChromeHashedWheelTimer timer, Executor executor, long ttlMillis) {
+    this.timer = timer;
+    this.executor = executor;
+    this.ttlMillis = ttlMillis;
+    this.entries = new ConcurrentHashMap<>();
+    this.abandoned = ConcurrentHashMap.newKeySet();
+    this.unclaimedCount = new AtomicInteger();
+    this.evictedCount = new LongAdder();
+  }
+
+  /**
+   * Claims the reply to `id`, which is already complete if it arrived first. The returned
+   * future fails with a `TimeoutException` if there is no reply within `timeoutMillis`.
+   */
+  CompletableFuture<ChromeMessage> claim(int id, long timeoutMillis) {
+    Entry entry = entries.compute(
+      id,
+      (key, existing) -> {
+        if (existing == null) {
+          return new Entry(true);
+        }
+        if (!existing.claimed) {
+          existing.claimed = true;
+          existing.eviction.cancel();
+          unclaimedCount.decrementAndGet();
+        }
+        return existing;
+      }
+    );
+    CompletableFuture<ChromeMessage> future = entry.future;
+    if (future.isDone()) {
+      entries.remove(id, entry);
+      return future;
+    }
+
+    ChromeHashedWheelTimer.Timeout timeout = timer.newTimeout(
+      () -> timeOut(future, id, timeoutMillis),
+      timeoutMillis,
+      TimeUnit.MILLISECONDS
+    );
+    future.whenComplete((response, throwable) -> {
+      timeout.cancel();
+      if (
+        throwable instanceof TimeoutException ||
+        throwable instanceof CancellationException
+      ) {
+        abandon(id);
+      }
+      entries.remove(id, entry);
+    });
+    return future;
+  }
+
+  /**
+   * Completes the waiter for `message`, or keeps it for one that hasn't shown up yet.
+   */
+  void complete(int id, ChromeMessage message) {
+    if (abandoned.remove(id)) {
+      LOG.debug("Dropping late response {}", id);
+    } else {
+      entryFor(id).future.complete(message);
+    }
+  }
+
+  void completeExceptionally(int id, Throwable throwable) {
+    if (abandoned.remove(id)) {
+      LOG.debug("Dropping late error response {}", id);
+    } else {
+      entryFor(id).future.completeExceptionally(throwable);
+    }
+  }
+
+  /**
+   * Fails every waiter and forgets every unclaimed reply, e.g. when the websocket closes.
+   */
+  void completeAllExceptionally(Throwable throwable) {
+    entries.forEach((id, entry) -> {
+      if (entries.remove(id, entry)) {
+        if (!entry.claimed) {
+          entry.eviction.cancel();
+          unclaimedCount.decrementAndGet();
+        }
+        entry.future.completeExceptionally(throwable);
+      }
+    });
+  }
+
+  boolean isAbandoned(int id) {
+    return abandoned.contains(id);
+  }
+
+  /**
+   * Replies that arrived before, or without, anyone waiting for them.
+   */
+  int getUnclaimedCount() {
+    return unclaimedCount.get();
+  }
+
+  /**
+   * Replies dropped because nobody claimed them within the TTL.
+   */
+  long getEvictedCount() {
+    return evictedCount.sum();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private void timeOut(
+    CompletableFuture<ChromeMessage> future,
+    int id,
+    long timeoutMillis
+  ) {
+    Runnable fail = () ->
+      future.completeExceptionally(
+        new TimeoutException(
+          String.format("No response to %s after %sms", id, timeoutMillis)
+        )
+      );
+    try {
+      executor.execute(fail);
+    } catch (RejectedExecutionException e) {
+      // The client is shutting down; still let the waiter go
+      fail.run();
+    }
+  }
+
+  private Entry entryFor(int id) {
+    return entries.computeIfAbsent(
+      id,
+      key -> {
+        Entry entry = new Entry(false);
+        entry.eviction =
+          timer.newTimeout(() -> evict(key, entry), ttlMillis, TimeUnit.MILLISECONDS);
+        unclaimedCount.incrementAndGet();
+        return entry;
+      }
+    );
+  }
+
+  private void evict(int id, Entry entry) {
+    boolean[] evicted = new boolean[1];
+    entries.computeIfPresent(
+      id,
+      (key, existing) -> {
+        if (existing == entry && !existing.claimed) {
+          evicted[0] = true;
+          return null;
+        }
+        return existing;
+      }
+    );
+    if (evicted[0]) {
+      unclaimedCount.decrementAndGet();
+      evictedCount.increment();
+      LOG.debug("Evicted response {} that nobody claimed within {}ms", id, ttlMillis);
+    }
+  }
+
+  // Marked before the waiter's entry goes, so a reply racing with the timeout either
+  // finds the entry or is dropped, rather than being parked for a waiter that has left.
+  // The mark is cleared by the reply, or after the TTL if chrome never answers.
+  private void abandon(int id) {
+    abandoned.add(id);
+    timer.newTimeout(() -> abandoned.remove(id), ttlMillis, TimeUnit.MILLISECONDS);
+  }
+
+  // `claimed` and `eviction` are only touched inside the map's atomic operations, or once
+  // the entry has been removed from it.
+  private static final class Entry {
+
+    private final CompletableFuture<ChromeMessage> future;
+    private boolean claimed;
+    private ChromeHashedWheelTimer.Timeout eviction;
+
+    private Entry(boolean claimed) {
+      this.future = new CompletableFuture<>();
+      this.claimed = claimed;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Consumes the `result` of a response while the frame is still being parsed, for results
+ * that are too large to be worth buffering. The parser is positioned on the result's
+ * START_OBJECT and must be left on its matching END_OBJECT.
+ */
+@FunctionalInterface
+interface ChromeResultHandler {
+  void read(JsonParser parser) throws IOException;
+
+  /**
+   * Decodes the base64 `field` of the result into `out` as it is parsed, without ever
+   * holding the encoded text. Any other members are skipped.
+   */
+  static ChromeResultHandler decodeBase64(String field, OutputStream out) {
+    return parser -> {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        parser.nextToken();
+        if (field.equals(name)) {
+          parser.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, out);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    };
+  }
+}
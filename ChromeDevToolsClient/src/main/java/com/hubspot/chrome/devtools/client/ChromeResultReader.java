@@ -0,0 +1,129 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.hubspot.chrome.devtools.base.ChromeMultiValueResult;
+import com.hubspot.chrome.devtools.client.core.Event;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds the buffered `result` of a response to the type a command asked for.
+ */
+final class ChromeResultReader {
+
+  private final ObjectMapper objectMapper;
+  private final Map<Type, ResultType> resultTypes;
+
+  ChromeResultReader(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    this.resultTypes = new ConcurrentHashMap<>();
+  }
+
+  <T> T read(TokenBuffer result, TypeReference<T> valueType) throws IOException {
+    return read(result, valueType.getType());
+  }
+
+  /**
+   * Binds `result` to `valueType`, a {@link Class}, generic type or {@link JavaType}.
+   */
+  <T> T read(TokenBuffer result, Type valueType) throws IOException {
+    // Most methods return a single element of data. To eliminate the user needing to
+    // access this single element via a pass through method, we skip the root node and map
+    // the element's data right into the data structure we want.
+    //
+    //   e.g. { "result" : { "browserContextId" : "some_id" } }
+    //                               ^--- ignore      ^--- consume directly
+    //
+    // Commands that return several values get a generated container class, marked
+    // with @ChromeMultiValueResult, that is bound from the whole result instead. Going by
+    // the type rather than the payload matters when optional members are absent, e.g.
+    // Runtime.evaluate without `exceptionDetails` must still become an EvaluateResult.
+    // Only types the protocol doesn't describe need a look at the payload too.
+    ResultType resultType = resultTypes.computeIfAbsent(
+      valueType,
+      type -> new ResultType(objectMapper.getTypeFactory().constructType(type))
+    );
+
+    if (
+      resultType.isMultiValue() || (resultType.isProbed() && hasMultipleMembers(result))
+    ) {
+      try (JsonParser parser = result.asParser(objectMapper)) {
+        return objectMapper.readValue(parser, resultType.getJavaType());
+      }
+    }
+
+    try (JsonParser parser = result.asParser(objectMapper)) {
+      parser.nextToken(); // START_OBJECT
+      if (parser.nextToken() != JsonToken.FIELD_NAME) {
+        return null; // an optional single return value that was omitted
+      }
+      parser.nextToken();
+      return objectMapper.readValue(parser, resultType.getJavaType());
+    }
+  }
+
+  // Only matters for callers building their own requests, who have always been able to
+  // get a multi-member result by asking for a type that matches all of it.
+  private static boolean hasMultipleMembers(TokenBuffer result) throws IOException {
+    try (JsonParser parser = result.asParser()) {
+      parser.nextToken(); // START_OBJECT
+      if (parser.nextToken() != JsonToken.FIELD_NAME) {
+        return false;
+      }
+      parser.nextToken();
+      parser.skipChildren();
+      return parser.nextToken() == JsonToken.FIELD_NAME;
+    }
+  }
+
+  private static final class ResultType {
+
+    private static final String GENERATED_PACKAGE =
+      Event.class.getPackage().getName() + ".";
+
+    private final JavaType javaType;
+    private final boolean multiValue;
+    private final boolean probed;
+
+    private ResultType(JavaType javaType) {
+      this.javaType = javaType;
+      this.multiValue =
+        javaType.getRawClass().isAnnotationPresent(ChromeMultiValueResult.class);
+      this.probed = !multiValue && !isSingleValue(javaType);
+    }
+
+    // Generated types, scalars and collections can only be bound from a single member,
+    // so the payload has nothing to add. Anything else, like a JsonNode, a Map or a
+    // caller's own class, might want the whole result.
+    private static boolean isSingleValue(JavaType javaType) {
+      Class<?> rawClass = javaType.getRawClass();
+      return (
+        javaType.isContainerType() && !javaType.isMapLikeType() ||
+        rawClass.isPrimitive() ||
+        rawClass == String.class ||
+        rawClass == Boolean.class ||
+        Number.class.isAssignableFrom(rawClass) ||
+        rawClass.getName().startsWith(GENERATED_PACKAGE)
+      );
+    }
+
+    private JavaType getJavaType() {
+      return javaType;
+    }
+
+    private boolean isMultiValue() {
+      return multiValue;
+    }
+
+    private boolean isProbed() {
+      return probed;
+    }
+  }
+}
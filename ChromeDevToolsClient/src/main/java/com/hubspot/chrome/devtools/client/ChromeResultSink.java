@@ -0,0 +1,52 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes a result decoded on the websocket reader thread on to the caller's stream. If
+ * the stream fails, the rest of the result is dropped instead of the failure escaping
+ * the reader, which would abandon the frame it's part of, and the caller gets the
+ * failure once the response is in.
+ */
+final class ChromeResultSink extends OutputStream {
+
+  private final OutputStream out;
+  // Only read once the response has completed, which publishes it
+  private Exception failure;
+
+  ChromeResultSink(OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(int b) {
+    if (failure != null) {
+      return;
+    }
+    try {
+      out.write(b);
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    if (failure != null) {
+      return;
+    }
+    try {
+      out.write(bytes, offset, length);
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+  }
+
+  void throwIfFailed(String what) {
+    if (failure != null) {
+      throw new ChromeDevToolsException("Couldn't write the " + what, failure);
+    }
+  }
+}
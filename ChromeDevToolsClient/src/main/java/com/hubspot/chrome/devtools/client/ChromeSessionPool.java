@@ -0,0 +1,559 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.io.Closeable;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps warm {@link ChromeDevToolsSession}s to one chrome endpoint so callers don't pay
+ * for creating a target and attaching to it on every request.
+ *
+ * Sessions are checked out with {@link #lease()} and go back to the pool when the lease
+ * is closed. A session is health checked when it is leased, when it is returned and
+ * periodically while idle, and sessions that fail are closed and replaced.
+ *
+ * Example:
+ *
+ *    try (ChromeSessionPool.Lease lease = pool.lease()) {
+ *      ChromeDevToolsSession session = lease.getSession();
+ *      session.navigate("https://example.com");
+ *    }
+ */
+public class ChromeSessionPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeSessionPool.class);
+
+  private final Supplier<ChromeDevToolsSession> sessionFactory;
+  @Nullable
+  private final BrowserTargets browserTargets;
+  private final Predicate<ChromeDevToolsSession> healthCheck;
+  private final int minIdleSessions;
+  private final int maxSessions;
+  private final long leaseTimeoutMillis;
+  private final boolean reuseSessions;
+
+  private final BlockingDeque<ChromeDevToolsSession> idleSessions;
+  private final Semaphore leasePermits;
+  private final ScheduledExecutorService maintenanceExecutor;
+  // Not `synchronized`: waiting for a session would pin a virtual thread
+  private final ReentrantLock sessionLock;
+  private final Condition sessionsChanged;
+  // Guarded by sessionLock: idle, leased and connecting sessions, and how many of the
+  // connecting ones replenish() is warming up
+  private int openSessions;
+  private int warmingSessions;
+  private volatile boolean closed;
+
+  private ChromeSessionPool(
+    Supplier<ChromeDevToolsSession> sessionFactory,
+    @Nullable BrowserTargets browserTargets,
+    Predicate<ChromeDevToolsSession> healthCheck,
+    int minIdleSessions,
+    int maxSessions,
+    long leaseTimeoutMillis,
+    long healthCheckIntervalMillis,
+    boolean reuseSessions
+  ) {
+    this.sessionFactory = sessionFactory;
+    this.browserTargets = browserTargets;
+    this.healthCheck = healthCheck;
+    this.minIdleSessions = minIdleSessions;
+    this.maxSessions = maxSessions;
+    this.leaseTimeoutMillis = leaseTimeoutMillis;
+    this.reuseSessions = reuseSessions;
+    this.idleSessions = new LinkedBlockingDeque<>();
+    this.leasePermits = new Semaphore(maxSessions, true);
+    this.sessionLock = new ReentrantLock();
+    this.sessionsChanged = sessionLock.newCondition();
+    this.maintenanceExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+          .setNameFormat("ChromeSessionPool-maintenance-%d")
+          .setDaemon(true)
+          .build()
+      );
+    this.maintenanceExecutor.scheduleWithFixedDelay(
+      this::checkIdleSessions,
+      healthCheckIntervalMillis,
+      healthCheckIntervalMillis,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  /**
+   * Leases a healthy session, connecting a new one if no idle session is available.
+   * Waits up to the lease timeout if all `maxSessions` sessions are already leased.
+   */
+  public Lease lease() {
+    if (closed) {
+      throw new ChromeDevToolsException("Session pool is closed");
+    }
+    long deadlineNanos =
+      System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMillis);
+    try {
+      if (!leasePermits.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw timedOut();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ChromeDevToolsException(e);
+    }
+
+    try {
+      ChromeDevToolsSession session;
+      while ((session = takeIdleSession(deadlineNanos)) != null) {
+        if (isHealthy(session)) {
+          return new Lease(session);
+        }
+        evict(session);
+      }
+      try {
+        return new Lease(sessionFactory.get());
+      } catch (RuntimeException e) {
+        sessionClosed();
+        throw e;
+      }
+    } catch (RuntimeException e) {
+      leasePermits.release();
+      throw e;
+    } finally {
+      replenishAsync();
+    }
+  }
+
+  /**
+   * Connects sessions until `minIdleSessions` are idle, without going over `maxSessions`.
+   * Happens in the background after leases and evictions; call this to warm the pool
+   * up front.
+   */
+  public void replenish() {
+    while (reserveWarmSession()) {
+      ChromeDevToolsSession session;
+      try {
+        session = sessionFactory.get();
+      } catch (RuntimeException e) {
+        LOG.warn("Could not warm up a chrome session", e);
+        warmed(null);
+        return;
+      }
+      warmed(session);
+    }
+  }
+
+  public int getIdleCount() {
+    return idleSessions.size();
+  }
+
+  public int getLeasedCount() {
+    return maxSessions - leasePermits.availablePermits();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    maintenanceExecutor.shutdownNow();
+    List<ChromeDevToolsSession> sessions = new ArrayList<>();
+    idleSessions.drainTo(sessions);
+    sessions.forEach(this::evict);
+    if (browserTargets != null) {
+      browserTargets.close();
+    }
+  }
+
+  /**
+   * Takes an idle session, or returns null once it has counted a new session against
+   * `maxSessions` for the caller to connect.
+   */
+  @Nullable
+  private ChromeDevToolsSession takeIdleSession(long deadlineNanos) {
+    sessionLock.lock();
+    try {
+      while (true) {
+        ChromeDevToolsSession session = idleSessions.pollFirst();
+        if (session != null) {
+          return session;
+        }
+        if (openSessions < maxSessions) {
+          openSessions++;
+          return null;
+        }
+        // The rest are being warmed up by replenish(); wait for one rather than go over
+        // maxSessions
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+          throw timedOut();
+        }
+        sessionsChanged.awaitNanos(remainingNanos);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ChromeDevToolsException(e);
+    } finally {
+      sessionLock.unlock();
+    }
+  }
+
+  private boolean reserveWarmSession() {
+    sessionLock.lock();
+    try {
+      if (
+        closed ||
+        idleSessions.size() + warmingSessions >= minIdleSessions ||
+        openSessions >= maxSessions
+      ) {
+        return false;
+      }
+      openSessions++;
+      warmingSessions++;
+      return true;
+    } finally {
+      sessionLock.unlock();
+    }
+  }
+
+  private void warmed(@Nullable ChromeDevToolsSession session) {
+    sessionLock.lock();
+    try {
+      warmingSessions--;
+      if (session == null) {
+        openSessions--;
+      } else if (!closed) {
+        idleSessions.offerLast(session);
+      }
+      sessionsChanged.signalAll();
+    } finally {
+      sessionLock.unlock();
+    }
+    if (session != null && closed) {
+      evict(session);
+    }
+  }
+
+  private void release(ChromeDevToolsSession session, boolean broken) {
+    try {
+      if (!closed && !broken && reuseSessions && isHealthy(session)) {
+        session.clearEventListeners();
+        sessionLock.lock();
+        try {
+          // Most recently used first, so the sessions that go stale are the ones left
+          // over when load drops.
+          idleSessions.offerFirst(session);
+          sessionsChanged.signalAll();
+        } finally {
+          sessionLock.unlock();
+        }
+      } else {
+        evict(session);
+        replenishAsync();
+      }
+    } finally {
+      leasePermits.release();
+    }
+  }
+
+  private void checkIdleSessions() {
+    for (ChromeDevToolsSession session : idleSessions) {
+      if (!isHealthy(session) && idleSessions.remove(session)) {
+        evict(session);
+      }
+    }
+    replenish();
+  }
+
+  private boolean isHealthy(ChromeDevToolsSession session) {
+    try {
+      return healthCheck.test(session);
+    } catch (RuntimeException e) {
+      LOG.debug("Health check failed for chrome session {}", session.getId(), e);
+      return false;
+    }
+  }
+
+  private void evict(ChromeDevToolsSession session) {
+    try {
+      session.close();
+    } catch (Exception e) {
+      LOG.warn("Could not close evicted chrome session {}", session.getId(), e);
+    } finally {
+      sessionClosed();
+    }
+  }
+
+  private void sessionClosed() {
+    sessionLock.lock();
+    try {
+      openSessions--;
+      sessionsChanged.signalAll();
+    } finally {
+      sessionLock.unlock();
+    }
+  }
+
+  private void replenishAsync() {
+    if (!closed && idleSessions.size() < minIdleSessions) {
+      try {
+        maintenanceExecutor.execute(this::replenish);
+      } catch (RejectedExecutionException e) {
+        // The pool was closed in the meantime
+      }
+    }
+  }
+
+  private ChromeDevToolsException timedOut() {
+    return new ChromeDevToolsException(
+      String.format(
+        "Timed out after %sms waiting for one of %s sessions",
+        leaseTimeoutMillis,
+        maxSessions
+      )
+    );
+  }
+
+  /**
+   * A session checked out of the pool. Closing the lease returns the session; call
+   * {@link #invalidate()} first if it shouldn't be reused.
+   */
+  public final class Lease implements AutoCloseable {
+
+    private final ChromeDevToolsSession session;
+    private final AtomicBoolean released;
+    private volatile boolean broken;
+
+    private Lease(ChromeDevToolsSession session) {
+      this.session = session;
+      this.released = new AtomicBoolean();
+    }
+
+    public ChromeDevToolsSession getSession() {
+      return session;
+    }
+
+    /**
+     * Marks the session as unusable so it is closed rather than returned to the pool.
+     */
+    public void invalidate() {
+      broken = true;
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        release(session, broken);
+      }
+    }
+  }
+
+  /**
+   * Opens every pooled session as a target in its own browser context, over one
+   * websocket to the browser that is connected when first needed and reconnected if it
+   * drops. Evicting a session disposes of its context, closing the target with it.
+   */
+  static final class BrowserTargets implements Supplier<ChromeDevToolsSession> {
+
+    private final Supplier<ChromeDevToolsSession> browserConnector;
+    // Not `synchronized`: connecting blocks, and would pin a virtual thread
+    private final ReentrantLock connectLock;
+    // Guarded by connectLock
+    private ChromeDevToolsSession browserSession;
+
+    BrowserTargets(Supplier<ChromeDevToolsSession> browserConnector) {
+      this.browserConnector = browserConnector;
+      this.connectLock = new ReentrantLock();
+    }
+
+    @Override
+    public ChromeDevToolsSession get() {
+      return getBrowserSession().attachToNewBrowserContext("about:blank");
+    }
+
+    void close() {
+      connectLock.lock();
+      try {
+        closeBrowserSession();
+      } finally {
+        connectLock.unlock();
+      }
+    }
+
+    private ChromeDevToolsSession getBrowserSession() {
+      connectLock.lock();
+      try {
+        if (browserSession == null || !browserSession.isConnected()) {
+          closeBrowserSession();
+          browserSession = browserConnector.get();
+        }
+        return browserSession;
+      } finally {
+        connectLock.unlock();
+      }
+    }
+
+    private void closeBrowserSession() {
+      if (browserSession == null) {
+        return;
+      }
+      try {
+        browserSession.close();
+      } catch (Exception e) {
+        LOG.warn("Could not close chrome browser session {}", browserSession.getId(), e);
+      }
+      browserSession = null;
+    }
+  }
+
+  public static class Builder {
+
+    private Supplier<ChromeDevToolsSession> sessionFactory;
+    @Nullable
+    private BrowserTargets browserTargets;
+    private Predicate<ChromeDevToolsSession> healthCheck;
+    private int minIdleSessions;
+    private int maxSessions;
+    private long leaseTimeoutMillis;
+    private long healthCheckIntervalMillis;
+    private boolean warmUp;
+    private boolean reuseSessions;
+
+    /**
+     * Pools sessions to targets of the chrome at `host:port`, each in its own browser
+     * context and all attached over one websocket to the browser (see
+     * `ChromeDevToolsClient.connectToBrowser`), which the pool closes when it is closed.
+     * Unlike {@link #Builder(ChromeDevToolsSession)}, sessions are reused across leases.
+     */
+    public Builder(ChromeDevToolsClient client, String host, int port) {
+      this(new BrowserTargets(() -> connectToBrowser(client, host, port)));
+    }
+
+    /**
+     * Pools targets in their own browser contexts, all attached over the one websocket of
+     * `browserSession` (see `ChromeDevToolsClient.connectToBrowser`). Every lease gets a
+     * fresh context, which is disposed of when the lease is closed rather than reused, so
+     * nothing leaks from one lease to the next.
+     */
+    public Builder(ChromeDevToolsSession browserSession) {
+      this(() -> browserSession.attachToNewBrowserContext("about:blank"));
+      this.reuseSessions = false;
+    }
+
+    Builder(BrowserTargets browserTargets) {
+      this((Supplier<ChromeDevToolsSession>) browserTargets);
+      this.browserTargets = browserTargets;
+    }
+
+    Builder(Supplier<ChromeDevToolsSession> sessionFactory) {
+      this.sessionFactory = sessionFactory;
+      this.healthCheck = Builder::isResponsive;
+      this.minIdleSessions = ChromeDevToolsClientDefaults.DEFAULT_POOL_MIN_IDLE_SESSIONS;
+      this.maxSessions = ChromeDevToolsClientDefaults.DEFAULT_POOL_MAX_SESSIONS;
+      this.leaseTimeoutMillis =
+        ChromeDevToolsClientDefaults.DEFAULT_POOL_LEASE_TIMEOUT_MILLIS;
+      this.healthCheckIntervalMillis =
+        ChromeDevToolsClientDefaults.DEFAULT_POOL_HEALTH_CHECK_INTERVAL_MILLIS;
+      this.warmUp = true;
+      this.reuseSessions = true;
+    }
+
+    /**
+     * Decides whether a session can be (re)used. Defaults to checking that its websocket
+     * is open and that it evaluates a trivial expression, which also catches a target
+     * that crashed or hung behind a websocket that is still open.
+     */
+    public Builder setHealthCheck(Predicate<ChromeDevToolsSession> healthCheck) {
+      this.healthCheck = healthCheck;
+      return this;
+    }
+
+    public Builder setMinIdleSessions(int minIdleSessions) {
+      this.minIdleSessions = minIdleSessions;
+      return this;
+    }
+
+    public Builder setMaxSessions(int maxSessions) {
+      this.maxSessions = maxSessions;
+      return this;
+    }
+
+    public Builder setLeaseTimeoutMillis(long leaseTimeoutMillis) {
+      this.leaseTimeoutMillis = leaseTimeoutMillis;
+      return this;
+    }
+
+    public Builder setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+      this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Whether `build()` connects the minimum idle sessions before returning. Defaults to
+     * true.
+     */
+    public Builder setWarmUp(boolean warmUp) {
+      this.warmUp = warmUp;
+      return this;
+    }
+
+    public ChromeSessionPool build() {
+      if (maxSessions < 1 || minIdleSessions < 0 || minIdleSessions > maxSessions) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Invalid pool size: minIdleSessions=%s, maxSessions=%s",
+            minIdleSessions,
+            maxSessions
+          )
+        );
+      }
+      ChromeSessionPool pool = new ChromeSessionPool(
+        sessionFactory,
+        browserTargets,
+        healthCheck,
+        minIdleSessions,
+        maxSessions,
+        leaseTimeoutMillis,
+        healthCheckIntervalMillis,
+        reuseSessions
+      );
+      if (warmUp) {
+        pool.replenish();
+      }
+      return pool;
+    }
+
+    private static boolean isResponsive(ChromeDevToolsSession session) {
+      if (!session.isConnected()) {
+        return false;
+      }
+      session.evaluate("1");
+      return true;
+    }
+
+    private static ChromeDevToolsSession connectToBrowser(
+      ChromeDevToolsClient client,
+      String host,
+      int port
+    ) {
+      try {
+        return client.connectToBrowser(host, port);
+      } catch (URISyntaxException e) {
+        throw new ChromeDevToolsException(e);
+      }
+    }
+  }
+}
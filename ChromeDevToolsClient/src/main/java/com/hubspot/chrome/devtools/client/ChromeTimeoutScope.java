@@ -0,0 +1,86 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.base.ChromeSessionCore;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Sends commands through a session with their own deadline rather than the client's
+ * action timeout. Commands that already have a timeout keep it. Domain classes are bound
+ * to the scope with {@link #domain}:
+ *
+ *    Page page = session.withTimeout(2000).domain(Page::new);
+ *    page.navigate("https://example.com");
+ */
+public class ChromeTimeoutScope implements ChromeSessionCore {
+
+  private final ChromeDevToolsSession session;
+  private final ObjectMapper objectMapper;
+  private final long timeoutMillis;
+
+  ChromeTimeoutScope(
+    ChromeDevToolsSession session,
+    ObjectMapper objectMapper,
+    long timeoutMillis
+  ) {
+    this.session = session;
+    this.objectMapper = objectMapper;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Binds a domain class to this scope, e.g. `scope.domain(Page::new)`.
+   */
+  public <D> D domain(BiFunction<ChromeSessionCore, ObjectMapper, D> domainFactory) {
+    return domainFactory.apply(this, objectMapper);
+  }
+
+  @Override
+  public void send(ChromeRequest request) {
+    session.send(withDeadline(request));
+  }
+
+  @Override
+  public <T> T send(ChromeRequest request, TypeReference<T> valueType) {
+    return session.send(withDeadline(request), valueType);
+  }
+
+  @Override
+  public CompletableFuture<Void> sendAsync(ChromeRequest request) {
+    return session.sendAsync(withDeadline(request));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> sendAsync(
+    ChromeRequest request,
+    TypeReference<T> valueType
+  ) {
+    return session.sendAsync(withDeadline(request), valueType);
+  }
+
+  @Override
+  public <T> T send(ChromeRequest request, JavaType valueType) {
+    return session.send(withDeadline(request), valueType);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> sendAsync(ChromeRequest request, JavaType valueType) {
+    return session.sendAsync(withDeadline(request), valueType);
+  }
+
+  /**
+   * The scope doesn't own the session, so this does nothing.
+   */
+  @Override
+  public void close() {}
+
+  private ChromeRequest withDeadline(ChromeRequest request) {
+    return request.getTimeoutMillis() == null
+      ? request.setTimeoutMillis(timeoutMillis)
+      : request;
+  }
+}
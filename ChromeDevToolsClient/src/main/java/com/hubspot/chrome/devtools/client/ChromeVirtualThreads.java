@@ -0,0 +1,68 @@
+package com.hubspot.chrome.devtools.client;
+
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads, looked up reflectively since this library still builds for Java 11.
+ */
+final class ChromeVirtualThreads {
+
+  private static final String THREAD_NAME_PREFIX = "chrome-devtools-virtual-";
+
+  private ChromeVirtualThreads() {}
+
+  static boolean isSupported() {
+    return isSupported(Thread.class);
+  }
+
+  // Takes the class to look in so tests can stand in one without `ofVirtual`
+  static boolean isSupported(Class<?> threadClass) {
+    try {
+      threadClass.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * An executor that starts a new virtual thread for every task.
+   *
+   * @throws ChromeDevToolsException if the JVM has no virtual threads (before Java 21)
+   */
+  static ExecutorService newThreadPerTaskExecutor() {
+    return newThreadPerTaskExecutor(Thread.class);
+  }
+
+  static ExecutorService newThreadPerTaskExecutor(Class<?> threadClass) {
+    if (!isSupported(threadClass)) {
+      throw new ChromeDevToolsException(
+        String.format(
+          "Virtual threads need Java 21 or later, but this is Java %s",
+          Runtime.version().feature()
+        )
+      );
+    }
+    try {
+      Object builder = threadClass.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builderClass
+        .getMethod("name", String.class, long.class)
+        .invoke(builder, THREAD_NAME_PREFIX, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) builderClass
+        .getMethod("factory")
+        .invoke(builder);
+      Method newThreadPerTaskExecutor = Executors.class.getMethod(
+        "newThreadPerTaskExecutor",
+        ThreadFactory.class
+      );
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+    } catch (ReflectiveOperationException e) {
+      throw new ChromeDevToolsException(e);
+    }
+  }
+}
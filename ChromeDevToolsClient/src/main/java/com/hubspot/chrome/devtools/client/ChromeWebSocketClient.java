@@ -1,30 +1,24 @@
 package com.hubspot.chrome.devtools.client;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.rholder.retry.RetryException;
-import com.github.rholder.retry.Retryer;
-import com.github.rholder.retry.RetryerBuilder;
-import com.github.rholder.retry.StopStrategies;
-import com.github.rholder.retry.WaitStrategies;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
 import com.hubspot.chrome.devtools.base.ChromeResponse;
 import com.hubspot.chrome.devtools.base.ChromeResponseErrorBody;
-import com.hubspot.chrome.devtools.client.core.Event;
-import com.hubspot.chrome.devtools.client.core.EventType;
 import com.hubspot.chrome.devtools.client.core.target.SessionID;
 import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,18 +26,21 @@ import org.slf4j.LoggerFactory;
 public class ChromeWebSocketClient extends WebSocketClient {
 
   private final Logger LOG = LoggerFactory.getLogger(ChromeWebSocketClient.class);
-  private static final Map<String, EventType> EVENT_TYPES = Arrays
-    .stream(EventType.values())
-    .collect(Collectors.toMap(EventType::getType, Function.identity()));
 
-  private final Retryer<ChromeResponse> actionRetryer;
+  // Nobody is waiting for the result of an abandoned command, so it isn't worth reading.
+  private static final ChromeResultHandler SKIP_RESULT = JsonParser::skipChildren;
 
-  private final Map<Integer, ChromeResponseErrorBody> errorsReceived;
-  private final Map<Integer, ChromeResponse> messagesReceived;
-  private final ObjectMapper objectMapper;
-  private final Map<String, ChromeEventListener> chromeEventListeners;
+  private final long actionTimeoutMillis;
   private final ExecutorService executorService;
 
+  private final ChromeResponseStore responses;
+  private final Map<Integer, ChromeResultHandler> resultHandlers;
+  private final ChromeMessageDecoder decoder;
+  private final ChromeEventListenerRegistry eventListeners;
+  private final Map<String, ChromeEventListenerRegistry> sessionEventListeners;
+  private final ChromeInFlightLimiter inFlightLimiter;
+  private final ChromeDevToolsMetrics metrics;
+
   public ChromeWebSocketClient(
     URI uri,
     ObjectMapper objectMapper,
@@ -51,22 +48,49 @@ public class ChromeWebSocketClient extends WebSocketClient {
     ExecutorService executorService,
     long actionTimeoutMillis
   ) {
-    super(uri);
-    this.objectMapper = objectMapper;
-    this.chromeEventListeners = chromeEventListeners;
-    this.executorService = executorService;
-    this.errorsReceived = new HashMap<>();
-    this.messagesReceived = new HashMap<>();
+    this(
+      uri,
+      objectMapper,
+      chromeEventListeners,
+      executorService,
+      actionTimeoutMillis,
+      ChromeInFlightLimit.unlimited(),
+      ChromeDevToolsMetrics.NOOP
+    );
+  }
 
-    // The timeout here is merely a safety net in case the user doesn't complete the futures
-    // this returns with their own timeout.
-    this.actionRetryer =
-      RetryerBuilder
-        .<ChromeResponse>newBuilder()
-        .retryIfResult(Objects::isNull)
-        .withStopStrategy(StopStrategies.stopAfterDelay(actionTimeoutMillis))
-        .withWaitStrategy(WaitStrategies.exponentialWait(100, TimeUnit.MILLISECONDS))
-        .build();
+  public ChromeWebSocketClient(
+    URI uri,
+    ObjectMapper objectMapper,
+    Map<String, ChromeEventListener> chromeEventListeners,
+    ExecutorService executorService,
+    long actionTimeoutMillis,
+    ChromeInFlightLimit inFlightLimit,
+    ChromeDevToolsMetrics metrics
+  ) {
+    super(uri, new ChromeWebSocketDraft());
+    this.eventListeners =
+      new ChromeEventListenerRegistry(chromeEventListeners, executorService);
+    this.decoder =
+      new ChromeMessageDecoder(
+        objectMapper,
+        eventListeners::hasConnectionListeners,
+        this::resultHandler
+      );
+    this.actionTimeoutMillis = actionTimeoutMillis;
+    this.executorService = executorService;
+    // Commands start waiting before they're written, so a reply that's gone unclaimed
+    // for as long as any command may wait for one has no waiter left to come for it.
+    this.responses =
+      new ChromeResponseStore(
+        ChromeHashedWheelTimer.shared(),
+        executorService,
+        actionTimeoutMillis
+      );
+    this.resultHandlers = new ConcurrentHashMap<>();
+    this.sessionEventListeners = new ConcurrentHashMap<>();
+    this.inFlightLimiter = newInFlightLimiter(inFlightLimit);
+    this.metrics = metrics;
   }
 
   @Override
@@ -86,7 +110,10 @@ public class ChromeWebSocketClient extends WebSocketClient {
   @Override
   public void onClose(int code, String reason, boolean remote) {
     LOG.debug("Disconnected from session ({}: {})", code, reason);
-    messagesReceived.clear();
+    ChromeDevToolsException disconnected = new ChromeDevToolsException(
+      "Websocket is not connected"
+    );
+    responses.completeAllExceptionally(disconnected);
   }
 
   @Override
@@ -94,22 +121,7 @@ public class ChromeWebSocketClient extends WebSocketClient {
     LOG.trace("Received message: {}", message);
 
     try {
-      ChromeResponse response = objectMapper.readValue(message, ChromeResponse.class);
-      if (response.isResponse()) {
-        messagesReceived.put(response.getId(), response);
-      } else if (response.isEvent()) {
-        Event event = objectMapper.readValue(message, Event.class);
-        SessionID sessionId = response.getSessionId() == null
-          ? null
-          : new SessionID(response.getSessionId());
-        for (ChromeEventListener eventListener : chromeEventListeners.values()) {
-          EventType type = EVENT_TYPES.get(response.getMethod());
-          executorService.submit(() -> eventListener.onEvent(sessionId, type, event));
-        }
-      } else if (response.isError()) {
-        LOG.error(response.getError().toString());
-        errorsReceived.put(response.getId(), response.getError());
-      }
+      handle(decoder.decode(message), message.length());
     } catch (IOException ioe) {
       LOG.warn("Could not parse response from chrome. Ignoring this response.", ioe);
     }
@@ -117,10 +129,67 @@ public class ChromeWebSocketClient extends WebSocketClient {
 
   @Override
   public void onMessage(ByteBuffer message) {
-    LOG.warn(
-      "Not set up to handle byte buffer, received buffer of size {}",
-      message.array().length
-    );
+    onMessage(Collections.singletonList(message));
+  }
+
+  /**
+   * Text messages arrive here, as the payloads of the frames they were sent in, rather
+   * than through {@link #onMessage(String)}. See {@link ChromeWebSocketDraft}.
+   */
+  void onMessage(List<ByteBuffer> payloads) {
+    int bytes = 0;
+    for (ByteBuffer payload : payloads) {
+      bytes += payload.remaining();
+    }
+    LOG.trace("Received message of {} bytes", bytes);
+
+    try {
+      handle(decoder.decode(payloads), bytes);
+    } catch (IOException ioe) {
+      LOG.warn("Could not parse response from chrome. Ignoring this response.", ioe);
+    }
+  }
+
+  private void handle(ChromeMessage chromeMessage, int bytes) {
+    Integer id = chromeMessage.getId();
+    SessionID sessionId = chromeMessage.getSessionId() == null
+      ? null
+      : new SessionID(chromeMessage.getSessionId());
+    metrics.messageReceived(sessionId, bytes);
+    if (chromeMessage.getEventType() != null) {
+      metrics.eventReceived(chromeMessage.getEventType());
+    }
+
+    if (chromeMessage.isResponse()) {
+      responses.complete(id, chromeMessage);
+    } else if (chromeMessage.isEvent()) {
+      eventListeners.dispatch(
+        sessionId,
+        chromeMessage.getEventType(),
+        chromeMessage.getEvent()
+      );
+      if (sessionId != null) {
+        ChromeEventListenerRegistry sessionListeners = sessionEventListeners.get(
+          sessionId.getValue()
+        );
+        if (sessionListeners != null) {
+          sessionListeners.dispatch(
+            sessionId,
+            chromeMessage.getEventType(),
+            chromeMessage.getEvent()
+          );
+        }
+      }
+    } else if (chromeMessage.isError()) {
+      ChromeResponseErrorBody error = chromeMessage.getError();
+      LOG.error(error.toString());
+      if (id != null) {
+        responses.completeExceptionally(
+          id,
+          new ChromeDevToolsException(error.getMessage(), error.getCode())
+        );
+      }
+    }
   }
 
   @Override
@@ -128,22 +197,179 @@ public class ChromeWebSocketClient extends WebSocketClient {
     LOG.error("Websocket exception for session", ex);
   }
 
+  /**
+   * Sends `utf8`, already encoded JSON, as one text frame, as {@link #send(String)} would
+   * after encoding it.
+   */
+  void sendText(byte[] utf8) {
+    TextFrame frame = new TextFrame();
+    frame.setPayload(ByteBuffer.wrap(utf8));
+    frame.setTransferemasked(true);
+    sendFrame(frame);
+  }
+
+  ChromeDevToolsMetrics getMetrics() {
+    return metrics;
+  }
+
+  ChromeInFlightLimiter getInFlightLimiter() {
+    return inFlightLimiter;
+  }
+
+  ChromeInFlightLimiter newInFlightLimiter(ChromeInFlightLimit inFlightLimit) {
+    return new ChromeInFlightLimiter(
+      inFlightLimit,
+      actionTimeoutMillis,
+      executorService,
+      ChromeHashedWheelTimer.shared()
+    );
+  }
+
+  /**
+   * The number of commands on this connection awaiting a response.
+   */
+  public int getInFlightCommandCount() {
+    return inFlightLimiter.getInFlightCount();
+  }
+
+  /**
+   * The number of commands waiting for this connection's in-flight limit to let them be
+   * written.
+   */
+  public int getQueuedCommandCount() {
+    return inFlightLimiter.getQueuedCount();
+  }
+
+  /**
+   * The number of responses that arrived without a command waiting for them. They are
+   * dropped if not claimed within the action timeout.
+   */
+  public int getUnclaimedResponseCount() {
+    return responses.getUnclaimedCount();
+  }
+
+  /**
+   * The number of responses dropped so far because nobody claimed them in time.
+   */
+  public long getEvictedResponseCount() {
+    return responses.getEvictedCount();
+  }
+
+  ChromeEventListenerRegistry getEventListeners() {
+    return eventListeners;
+  }
+
+  /**
+   * The listeners of a target session attached to this connection in flat mode. They only
+   * see events tagged with `sessionId`, while the root listeners see every event.
+   */
+  ChromeEventListenerRegistry getEventListeners(SessionID sessionId) {
+    return sessionEventListeners.computeIfAbsent(
+      sessionId.getValue(),
+      ignored -> eventListeners.newSessionRegistry()
+    );
+  }
+
+  void removeEventListeners(SessionID sessionId) {
+    eventListeners.removeLane(sessionId);
+    ChromeEventListenerRegistry removed = sessionEventListeners.remove(
+      sessionId.getValue()
+    );
+    if (removed != null) {
+      removed.clear();
+    }
+  }
+
   public ChromeResponse getResponse(int id) {
+    return await(getResponseAsync(id));
+  }
+
+  /**
+   * Returns a future that the websocket reader completes as soon as the response (or
+   * error) for `id` arrives, or that fails once the action timeout elapses. If the
+   * response arrived before anyone asked for it, the returned future is already complete.
+   *
+   * Cancelling the future stops waiting for the response; if it turns up later it is
+   * dropped.
+   */
+  public CompletableFuture<ChromeResponse> getResponseAsync(int id) {
+    CompletableFuture<ChromeMessage> response = expectResponse(id, actionTimeoutMillis);
+    return ChromeFutures.cancelWith(
+      response.thenApply(ChromeMessage::toResponse),
+      response
+    );
+  }
+
+  /**
+   * Waits for the response to `request`, for as long as its timeout or else the action
+   * timeout.
+   */
+  CompletableFuture<ChromeMessage> expectResponse(ChromeRequest request) {
+    return expectResponse(request.getId(), timeoutMillis(request));
+  }
+
+  /**
+   * Like {@link #expectResponse(ChromeRequest)}, but `handler` consumes the result while
+   * the response is being parsed, and the future completes with an empty result. If the
+   * handler fails, so does the future.
+   */
+  CompletableFuture<ChromeMessage> expectResponse(
+    ChromeRequest request,
+    ChromeResultHandler handler
+  ) {
+    int id = request.getId();
+    resultHandlers.put(id, handler);
+    CompletableFuture<ChromeMessage> future = expectResponse(id, timeoutMillis(request));
+    future.whenComplete((response, throwable) -> resultHandlers.remove(id, handler));
+    return future;
+  }
+
+  private CompletableFuture<ChromeMessage> expectResponse(int id, long timeoutMillis) {
+    CompletableFuture<ChromeMessage> future = responses.claim(id, timeoutMillis);
+    if (isClosed()) {
+      future.completeExceptionally(
+        new ChromeDevToolsException("Websocket is not connected")
+      );
+    }
+    return future;
+  }
+
+  long timeoutMillis(ChromeRequest request) {
+    return request.getTimeoutMillis() == null
+      ? actionTimeoutMillis
+      : request.getTimeoutMillis();
+  }
+
+  private ChromeResultHandler resultHandler(int id) {
+    if (responses.isAbandoned(id)) {
+      return SKIP_RESULT;
+    }
+    ChromeResultHandler handler = resultHandlers.get(id);
+    if (handler == null) {
+      return null;
+    }
+    return parser -> {
+      try {
+        handler.read(parser);
+      } catch (IOException | RuntimeException e) {
+        responses.completeExceptionally(id, e);
+        throw e;
+      }
+    };
+  }
+
+  static <T> T await(CompletableFuture<T> future) {
     try {
-      ChromeResponse response = actionRetryer.call(() -> {
-        if (errorsReceived.containsKey(id)) {
-          ChromeResponseErrorBody error = errorsReceived.get(id);
-          throw new ChromeDevToolsException(error.getMessage(), error.getCode());
-        }
-        if (!isOpen()) {
-          throw new ChromeDevToolsException("Websocket is not connected");
-        }
-        return messagesReceived.get(id);
-      });
-      messagesReceived.remove(id);
-      return response;
-    } catch (ExecutionException | RetryException e) {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      Thread.currentThread().interrupt();
       throw new ChromeDevToolsException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ChromeDevToolsException) {
+        throw (ChromeDevToolsException) e.getCause();
+      }
+      throw new ChromeDevToolsException(e.getCause());
     }
   }
 }
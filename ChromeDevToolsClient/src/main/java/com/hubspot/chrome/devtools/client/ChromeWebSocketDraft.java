@@ -0,0 +1,74 @@
+package com.hubspot.chrome.devtools.client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WebSocketListener;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+
+/**
+ * RFC 6455 draft that hands text messages to {@link ChromeWebSocketClient} as the raw
+ * frame payloads instead of decoding them into a `String` first. Fragmented messages are
+ * kept as the list of their fragments' buffers rather than being joined into one. Control
+ * and binary frames are left to {@link Draft_6455}.
+ */
+final class ChromeWebSocketDraft extends Draft_6455 {
+
+  private List<ByteBuffer> textFragments;
+
+  @Override
+  public void processFrame(WebSocketImpl webSocketImpl, Framedata frame)
+    throws InvalidDataException {
+    Opcode opcode = frame.getOpcode();
+    if (opcode == Opcode.TEXT) {
+      if (textFragments != null) {
+        throw new InvalidDataException(
+          CloseFrame.PROTOCOL_ERROR,
+          "Previous text message was not finished"
+        );
+      }
+      if (frame.isFin()) {
+        deliver(webSocketImpl, Collections.singletonList(frame.getPayloadData()));
+      } else {
+        textFragments = new ArrayList<>();
+        textFragments.add(frame.getPayloadData());
+      }
+    } else if (opcode == Opcode.CONTINUOUS && textFragments != null) {
+      textFragments.add(frame.getPayloadData());
+      if (frame.isFin()) {
+        List<ByteBuffer> message = textFragments;
+        textFragments = null;
+        deliver(webSocketImpl, message);
+      }
+    } else {
+      super.processFrame(webSocketImpl, frame);
+    }
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    textFragments = null;
+  }
+
+  @Override
+  public Draft copyInstance() {
+    return new ChromeWebSocketDraft();
+  }
+
+  private static void deliver(WebSocketImpl webSocketImpl, List<ByteBuffer> message) {
+    WebSocketListener listener = webSocketImpl.getWebSocketListener();
+    try {
+      ((ChromeWebSocketClient) listener).onMessage(message);
+    } catch (RuntimeException e) {
+      listener.onWebsocketError(webSocketImpl, e);
+    }
+  }
+}
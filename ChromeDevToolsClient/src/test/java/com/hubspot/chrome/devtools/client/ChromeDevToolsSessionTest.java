@@ -0,0 +1,574 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.dom.DOM;
+import com.hubspot.chrome.devtools.client.core.dom.NodeId;
+import com.hubspot.chrome.devtools.client.core.input.Input;
+import com.hubspot.chrome.devtools.client.core.page.DomContentEventFiredEvent;
+import com.hubspot.chrome.devtools.client.core.page.LoadEventFiredEvent;
+import com.hubspot.chrome.devtools.client.core.page.Page;
+import com.hubspot.chrome.devtools.client.core.runtime.EvaluateResult;
+import com.hubspot.chrome.devtools.client.core.runtime.Runtime;
+import com.hubspot.chrome.devtools.client.core.target.SessionID;
+import com.hubspot.chrome.devtools.client.core.target.Target;
+import com.hubspot.chrome.devtools.client.core.target.TargetID;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ChromeDevToolsSessionTest {
+
+  private static final ObjectMapper OBJECT_MAPPER =
+    ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+
+  @Test
+  public void itCompletesAsyncCommandsWithoutHoldingAThread() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    CompletableFuture<TargetID> future = new Target(session, OBJECT_MAPPER)
+      .createTargetAsync("about:blank");
+    assertThat(client.sent).hasSize(1);
+    assertThat(future).isNotDone();
+
+    client.onMessage(
+      "{\"id\":" +
+      client.lastSentId() +
+      ",\"result\":{\"targetId\":\"target-1\"}}"
+    );
+
+    assertThat(future.get(1, TimeUnit.SECONDS).getValue()).isEqualTo("target-1");
+  }
+
+  @Test
+  public void itBindsMultiValueResultsWithAbsentOptionalMembers() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    CompletableFuture<EvaluateResult> future = new Runtime(session, OBJECT_MAPPER)
+      .evaluateAsync("1 + 1");
+    client.onMessage(
+      "{\"id\":" +
+      client.lastSentId() +
+      ",\"result\":{\"result\":{\"type\":\"number\",\"value\":2}}}"
+    );
+
+    EvaluateResult result = future.get(1, TimeUnit.SECONDS);
+    assertThat(result.result.getValue()).isEqualTo(2);
+    assertThat(result.exceptionDetails).isNull();
+  }
+
+  @Test
+  public void itHandsOutOneOfEachDomainAndBindsGenericResults() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    assertThat(session.getDOM()).isSameAs(session.getDOM());
+    assertThat(session.getInput()).isSameAs(session.getInput());
+
+    CompletableFuture<List<String>> future = session
+      .getDOM()
+      .getAttributesAsync(new NodeId(4));
+    client.onMessage(
+      "{\"id\":" +
+      client.lastSentId() +
+      ",\"result\":{\"attributes\":[\"class\",\"nav\"]}}"
+    );
+
+    assertThat(future.get(5, TimeUnit.SECONDS)).containsExactly("class", "nav");
+  }
+
+  @Test
+  public void itBindsWholeResultsToTypesTheProtocolDoesntDescribe() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient()
+      .respondTo(
+        "Page.getLayoutMetrics",
+        "{\"cssLayoutViewport\":{},\"cssVisualViewport\":{}}"
+      )
+      .respondTo("Page.getFrameTree", "{\"frameTree\":{\"frame\":{\"id\":\"main\"}}}");
+    ChromeDevToolsSession session = newSession(client);
+
+    JsonNode metrics = session.send(
+      new ChromeRequest("Page.getLayoutMetrics"),
+      new TypeReference<JsonNode>() {}
+    );
+    JsonNode frameTree = session.send(
+      new ChromeRequest("Page.getFrameTree"),
+      new TypeReference<JsonNode>() {}
+    );
+
+    assertThat(metrics.has("cssLayoutViewport")).isTrue();
+    assertThat(metrics.has("cssVisualViewport")).isTrue();
+    assertThat(frameTree.get("frame").get("id").asText()).isEqualTo("main");
+  }
+
+  @Test
+  public void itOnlyDeliversEventsToConsumersOfThatType() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    List<LoadEventFiredEvent> loadEvents = new CopyOnWriteArrayList<>();
+    List<Event> allEvents = new CopyOnWriteArrayList<>();
+    session.collectEvents(EventType.PAGE_LOAD_EVENT_FIRED, loadEvents);
+    CountDownLatch delivered = new CountDownLatch(2);
+    session.addEventListener("all", (type, event) -> {
+      allEvents.add(event);
+      delivered.countDown();
+    });
+
+    client.onMessage(
+      "{\"method\":\"Page.domContentEventFired\",\"params\":{\"timestamp\":1.0}}"
+    );
+    client.onMessage(
+      "{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":2.0}}"
+    );
+
+    assertThat(delivered.await(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(loadEvents).hasSize(1);
+    assertThat(allEvents.get(0)).isInstanceOf(DomContentEventFiredEvent.class);
+  }
+
+  @Test
+  public void itDeliversEachSessionsEventsInOrder() throws Exception {
+    ChromeEventListenerRegistry registry = new ChromeEventListenerRegistry(
+      new ConcurrentHashMap<>(),
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE
+    );
+    SessionID first = new SessionID("first");
+    SessionID second = new SessionID("second");
+    Map<SessionID, List<Event>> delivered = new ConcurrentHashMap<>();
+    int eventsPerSession = 500;
+    CountDownLatch done = new CountDownLatch(2 * eventsPerSession);
+    registry.addListener(
+      "all",
+      new ChromeEventListener() {
+        @Override
+        public void onEvent(EventType type, Event event) {}
+
+        @Override
+        public void onEvent(SessionID sessionId, EventType type, Event event) {
+          delivered.computeIfAbsent(sessionId, ignored -> new ArrayList<>()).add(event);
+          done.countDown();
+        }
+      }
+    );
+
+    List<Event> sent = new ArrayList<>();
+    for (int i = 0; i < eventsPerSession; i++) {
+      Event event = new LoadEventFiredEvent(null);
+      sent.add(event);
+      registry.dispatch(first, EventType.PAGE_LOAD_EVENT_FIRED, event);
+      registry.dispatch(second, EventType.PAGE_LOAD_EVENT_FIRED, event);
+    }
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    // Plain lists, so this also fails if a lane ever delivers two events at once
+    assertThat(delivered.get(first)).containsExactlyElementsOf(sent);
+    assertThat(delivered.get(second)).containsExactlyElementsOf(sent);
+  }
+
+  @Test
+  public void itDropsTheLaneOfASessionChromeDetaches() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    CountDownLatch delivered = new CountDownLatch(1);
+    client
+      .getEventListeners()
+      .addListener(
+        "load",
+        EventType.PAGE_LOAD_EVENT_FIRED,
+        (type, event) -> delivered.countDown()
+      );
+
+    client.onMessage(
+      "{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":1.0}," +
+      "\"sessionId\":\"auto-attached\"}"
+    );
+    assertThat(client.getEventListeners().getSessionLaneCount()).isEqualTo(1);
+
+    client.onMessage(
+      "{\"method\":\"Target.detachedFromTarget\"," +
+      "\"params\":{\"sessionId\":\"auto-attached\",\"targetId\":\"t1\"}}"
+    );
+    assertThat(client.getEventListeners().getSessionLaneCount()).isZero();
+    assertThat(delivered.await(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void itSkipsDispatchWhenNoListenerIsInterested() {
+    ChromeEventListenerRegistry registry = new ChromeEventListenerRegistry(
+      new ConcurrentHashMap<>(),
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE
+    );
+    registry.addListener("load", EventType.PAGE_LOAD_EVENT_FIRED, (type, event) -> {});
+
+    assertThat(registry.hasListeners(EventType.PAGE_LOAD_EVENT_FIRED)).isTrue();
+    assertThat(registry.hasListeners(EventType.PAGE_DOM_CONTENT_EVENT_FIRED)).isFalse();
+
+    registry.removeListener("load");
+    assertThat(registry.hasListeners(EventType.PAGE_LOAD_EVENT_FIRED)).isFalse();
+  }
+
+  @Test
+  public void itStreamsPdfsInChunks() throws Exception {
+    List<String> chunks = List.of("JVBERi0=", "aGVsbG8=");
+    RecordingWebSocketClient client = new RecordingWebSocketClient() {
+      private int reads = 0;
+
+      @Override
+      public void send(String text) {
+        super.send(text);
+        try {
+          JsonNode request = OBJECT_MAPPER.readTree(text);
+          String result;
+          switch (request.get("method").asText()) {
+            case "Page.printToPDF":
+              assertThat(request.get("params").get("transferMode").asText())
+                .isEqualTo("ReturnAsStream");
+              result = "{\"data\":\"\",\"stream\":\"pdf-1\"}";
+              break;
+            case "IO.read":
+              boolean eof = reads == chunks.size() - 1;
+              result =
+                String.format(
+                  "{\"base64Encoded\":true,\"data\":\"%s\",\"eof\":%s}",
+                  chunks.get(reads++),
+                  eof
+                );
+              break;
+            default:
+              result = "{}";
+          }
+          onMessage(
+            String.format("{\"id\":%s,\"result\":%s}", request.get("id"), result)
+          );
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+    ChromeDevToolsSession session = newSession(client);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    session.printToPDF(out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("%PDF-hello");
+    assertThat(client.lastSentMethod()).isEqualTo("IO.close");
+  }
+
+  @Test
+  public void itDecodesScreenshotsStraightIntoTheSink() throws Exception {
+    byte[] image = new byte[100_000];
+    new Random(0).nextBytes(image);
+    RecordingWebSocketClient client = new RecordingWebSocketClient() {
+      @Override
+      public void send(String text) {
+        super.send(text);
+        String response = String.format(
+          "{\"id\":%s,\"result\":{\"data\":\"%s\"}}",
+          idOf(text),
+          Base64.getEncoder().encodeToString(image)
+        );
+        onMessage(
+          Collections.singletonList(
+            ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8))
+          )
+        );
+      }
+    };
+    ChromeDevToolsSession session = newSession(client);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    session.captureScreenshot(FileExtension.PNG, out);
+    ByteBuffer buffer = ByteBuffer.allocate(image.length);
+    session.captureScreenshot(FileExtension.PNG, buffer);
+
+    assertThat(out.toByteArray()).isEqualTo(image);
+    assertThat(buffer.array()).isEqualTo(image);
+  }
+
+  @Test
+  public void itFailsScreenshotsThatDontFitWithoutAbandoningTheConnection() {
+    byte[] image = new byte[100_000];
+    new Random(0).nextBytes(image);
+    RecordingWebSocketClient client = new RecordingWebSocketClient()
+      .respondTo(
+        "Page.captureScreenshot",
+        "{\"data\":\"" + Base64.getEncoder().encodeToString(image) + "\"}"
+      );
+    ChromeDevToolsSession session = newSession(client);
+
+    assertThatThrownBy(() ->
+        session.captureScreenshot(FileExtension.PNG, ByteBuffer.allocate(1000))
+      )
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessage("Couldn't write the screenshot")
+      .hasRootCauseMessage("Screenshot doesn't fit in the 1000 bytes left in the buffer");
+
+    ByteBuffer buffer = ByteBuffer.allocate(image.length);
+    session.captureScreenshot(FileExtension.PNG, buffer);
+    assertThat(buffer.array()).isEqualTo(image);
+  }
+
+  @Test
+  public void itMultiplexesAttachedTargetsOverOneWebsocket() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient() {
+      @Override
+      public void send(String text) {
+        super.send(text);
+        if (text.contains("Target.attachToTarget")) {
+          onMessage(
+            String.format(
+              "{\"id\":%s,\"result\":{\"sessionId\":\"session-%s\"}}",
+              idOf(text),
+              text.contains("target-1") ? 1 : 2
+            )
+          );
+        }
+      }
+    };
+    ChromeDevToolsSession browser = newSession(client);
+    ChromeDevToolsSession first = browser.attachToTarget(new TargetID("target-1"));
+    ChromeDevToolsSession second = browser.attachToTarget(new TargetID("target-2"));
+    assertThat(first.getSessionId().getValue()).isEqualTo("session-1");
+
+    first.getPage().enableAsync();
+    JsonNode request = OBJECT_MAPPER.readTree(client.getSent().get(2));
+    assertThat(request.get("sessionId").asText()).isEqualTo("session-1");
+    JsonNode attach = OBJECT_MAPPER.readTree(client.getSent().get(0));
+    assertThat(attach.has("sessionId")).isFalse();
+
+    List<Event> firstEvents = new CopyOnWriteArrayList<>();
+    List<Event> secondEvents = new CopyOnWriteArrayList<>();
+    CountDownLatch delivered = new CountDownLatch(1);
+    first.collectEvents(EventType.PAGE_LOAD_EVENT_FIRED, firstEvents);
+    second.addEventConsumer(
+      EventType.PAGE_LOAD_EVENT_FIRED,
+      (Event event) -> {
+        secondEvents.add(event);
+        delivered.countDown();
+      }
+    );
+    client.onMessage(
+      "{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":1.0}," +
+      "\"sessionId\":\"session-2\"}"
+    );
+
+    assertThat(delivered.await(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(secondEvents).hasSize(1);
+    assertThat(firstEvents).isEmpty();
+  }
+
+  @Test
+  public void itIsolatesTargetsInDisposableBrowserContexts() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient()
+      .respondTo("Target.createBrowserContext", "{\"browserContextId\":\"context-1\"}")
+      .respondTo("Target.createTarget", "{\"targetId\":\"target-1\"}")
+      .respondTo("Target.attachToTarget", "{\"sessionId\":\"session-1\"}")
+      .respondTo("Target.disposeBrowserContext", "{}");
+    ChromeDevToolsSession browser = newSession(client);
+
+    ChromeDevToolsSession isolated = browser.attachToNewBrowserContext("about:blank");
+    JsonNode createTarget = OBJECT_MAPPER.readTree(client.getSent().get(1));
+    assertThat(createTarget.get("params").get("browserContextId").asText())
+      .isEqualTo("context-1");
+
+    isolated.close();
+    JsonNode dispose = OBJECT_MAPPER.readTree(client.getSent().get(3));
+    assertThat(dispose.get("method").asText()).isEqualTo("Target.disposeBrowserContext");
+    assertThat(dispose.get("params").get("browserContextId").asText())
+      .isEqualTo("context-1");
+    assertThat(dispose.has("sessionId")).isFalse();
+  }
+
+  @Test
+  public void itWritesBatchedCommandsBackToBack() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    ChromeBatch batch = session.newBatch();
+    CompletableFuture<Void> pageEnabled = batch.domain(Page::new).enableAsync();
+    CompletableFuture<TargetID> target = batch
+      .domain(Target::new)
+      .createTargetAsync("about:blank");
+    assertThat(client.getSent()).isEmpty();
+
+    CompletableFuture<Void> all = batch.send();
+    assertThat(client.getSent()).hasSize(2);
+    assertThat(all).isNotDone();
+
+    int enableId = RecordingWebSocketClient.idOf(client.getSent().get(0));
+    int createTargetId = RecordingWebSocketClient.idOf(client.getSent().get(1));
+    client.onMessage("{\"id\":" + enableId + ",\"result\":{}}");
+    client.onMessage(
+      "{\"id\":" + createTargetId + ",\"result\":{\"targetId\":\"target-1\"}}"
+    );
+
+    all.get(1, TimeUnit.SECONDS);
+    assertThat(pageEnabled).isDone();
+    assertThat(target.get().getValue()).isEqualTo("target-1");
+  }
+
+  @Test
+  public void itWritesOnlyTheArgumentsGiven() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    new Input(session, OBJECT_MAPPER).dispatchMouseEventAsync("mousePressed", 412.5, 233);
+    new DOM(session, OBJECT_MAPPER).querySelectorAsync(new NodeId(1), "a[href]");
+    session.sendAsync(new ChromeRequest("Page.navigate").putParams("url", "about:blank"));
+
+    assertThat(paramsSent(client, 0))
+      .isEqualTo(
+        OBJECT_MAPPER.readTree("{\"type\":\"mousePressed\",\"x\":412.5,\"y\":233}")
+      );
+    assertThat(paramsSent(client, 1))
+      .isEqualTo(OBJECT_MAPPER.readTree("{\"nodeId\":1,\"selector\":\"a[href]\"}"));
+    assertThat(paramsSent(client, 2))
+      .isEqualTo(OBJECT_MAPPER.readTree("{\"url\":\"about:blank\"}"));
+  }
+
+  @Test
+  public void itLeavesOutParamsWhenThereAreNone() throws Exception {
+    RecordingWebSocketClient client = new RecordingWebSocketClient();
+    ChromeDevToolsSession session = newSession(client);
+
+    ChromeRequest request = new ChromeRequest("Page.navigate");
+    session.sendAsync(new ChromeRequest("Page.enable"));
+    request.getParams().put("url", "about:blank");
+    session.sendAsync(request);
+
+    assertThat(OBJECT_MAPPER.readTree(client.getSent().get(0)).has("params")).isFalse();
+    assertThat(paramsSent(client, 1))
+      .isEqualTo(OBJECT_MAPPER.readTree("{\"url\":\"about:blank\"}"));
+  }
+
+  private static JsonNode paramsSent(RecordingWebSocketClient client, int index)
+    throws IOException {
+    return OBJECT_MAPPER.readTree(client.getSent().get(index)).get("params");
+  }
+
+  static ChromeDevToolsSession newSession(RecordingWebSocketClient client) {
+    return new ChromeDevToolsSession(
+      client,
+      OBJECT_MAPPER,
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE
+    );
+  }
+
+  static class RecordingWebSocketClient extends ChromeWebSocketClient {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final Map<String, String> results = new ConcurrentHashMap<>();
+    private final Map<String, ChromeEventListener> listeners;
+    private volatile boolean open;
+
+    RecordingWebSocketClient() {
+      this(ChromeDevToolsMetrics.NOOP);
+    }
+
+    RecordingWebSocketClient(ChromeDevToolsMetrics metrics) {
+      this(new ConcurrentHashMap<>(), metrics);
+    }
+
+    private RecordingWebSocketClient(
+      Map<String, ChromeEventListener> listeners,
+      ChromeDevToolsMetrics metrics
+    ) {
+      super(
+        URI.create(""),
+        OBJECT_MAPPER,
+        listeners,
+        ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE,
+        1000L,
+        ChromeInFlightLimit.unlimited(),
+        metrics
+      );
+      this.listeners = listeners;
+    }
+
+    // Sessions write encoded frames; tests see them as the text they decode to
+    @Override
+    void sendText(byte[] utf8) {
+      send(new String(utf8, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void send(String text) {
+      sent.add(text);
+      String method = methodOf(text);
+      if (results.containsKey(method)) {
+        onMessage(
+          String.format("{\"id\":%s,\"result\":%s}", idOf(text), results.get(method))
+        );
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    /**
+     * Replies to every `method` request with `result`, as if it were connected to chrome.
+     */
+    RecordingWebSocketClient respondTo(String method, String result) {
+      results.put(method, result);
+      open = true;
+      return this;
+    }
+
+    List<String> getSent() {
+      return sent;
+    }
+
+    String lastSentMethod() throws Exception {
+      JsonNode request = OBJECT_MAPPER.readTree(sent.get(sent.size() - 1));
+      return request.get("method").asText();
+    }
+
+    static int idOf(String request) {
+      return readTree(request).get("id").asInt();
+    }
+
+    static String methodOf(String request) {
+      return readTree(request).get("method").asText();
+    }
+
+    private static JsonNode readTree(String request) {
+      try {
+        return OBJECT_MAPPER.readTree(request);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    int lastSentId() throws Exception {
+      JsonNode request = OBJECT_MAPPER.readTree(sent.get(sent.size() - 1));
+      return request.get("id").asInt();
+    }
+  }
+}
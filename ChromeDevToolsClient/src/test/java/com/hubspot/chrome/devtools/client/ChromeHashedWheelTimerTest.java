@@ -0,0 +1,49 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class ChromeHashedWheelTimerTest {
+
+  @Test
+  public void itRunsTasksOnceTheirDelayElapses() throws Exception {
+    // A small wheel, so the delay spans several rounds of it
+    ChromeHashedWheelTimer timer = new ChromeHashedWheelTimer(
+      "test-timer",
+      1,
+      TimeUnit.MILLISECONDS,
+      8
+    );
+    CountDownLatch ran = new CountDownLatch(1);
+    long start = System.nanoTime();
+
+    timer.newTimeout(ran::countDown, 30, TimeUnit.MILLISECONDS);
+
+    assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(System.nanoTime() - start)
+      .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+    assertThat(timer.getPendingCount()).isZero();
+  }
+
+  @Test
+  public void itDoesNotRunCancelledTasks() throws Exception {
+    ChromeHashedWheelTimer timer = new ChromeHashedWheelTimer(
+      "test-timer",
+      1,
+      TimeUnit.MILLISECONDS,
+      8
+    );
+    AtomicBoolean cancelledRan = new AtomicBoolean();
+    CountDownLatch later = new CountDownLatch(1);
+
+    timer.newTimeout(() -> cancelledRan.set(true), 10, TimeUnit.MILLISECONDS).cancel();
+    timer.newTimeout(later::countDown, 30, TimeUnit.MILLISECONDS);
+
+    assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(cancelledRan).isFalse();
+  }
+}
@@ -0,0 +1,137 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hubspot.chrome.devtools.client.ChromeInFlightLimit.OverloadPolicy;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+public class ChromeInFlightLimiterTest {
+
+  @Test
+  public void itFailsCommandsOverTheLimit() {
+    ChromeInFlightLimiter limiter = newLimiter(OverloadPolicy.FAIL, 50, Runnable::run);
+    CompletableFuture<String> first = new CompletableFuture<>();
+
+    assertThat(limiter.submit(() -> first)).isSameAs(first);
+    CompletableFuture<String> rejected = limiter.submit(CompletableFuture::new);
+
+    assertThat(rejected)
+      .hasFailedWithThrowableThat()
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessageContaining("Too many commands in flight");
+    assertThat(limiter.getInFlightCount()).isEqualTo(1);
+
+    first.complete("done");
+    assertThat(limiter.getInFlightCount()).isZero();
+  }
+
+  @Test
+  public void itQueuesCommandsInOrderUntilSlotsFreeUp() {
+    ChromeInFlightLimiter limiter = newLimiter(OverloadPolicy.QUEUE, 50, Runnable::run);
+    List<String> started = new ArrayList<>();
+    CompletableFuture<String> a = new CompletableFuture<>();
+    CompletableFuture<String> b = new CompletableFuture<>();
+    CompletableFuture<String> c = new CompletableFuture<>();
+
+    limiter.submit(() -> start(started, "a", a));
+    CompletableFuture<String> queuedB = limiter.submit(() -> start(started, "b", b));
+    CompletableFuture<String> queuedC = limiter.submit(() -> start(started, "c", c));
+
+    assertThat(started).containsExactly("a");
+    assertThat(limiter.getQueuedCount()).isEqualTo(2);
+
+    a.complete("a");
+    assertThat(started).containsExactly("a", "b");
+    b.complete("b");
+    c.complete("c");
+
+    assertThat(started).containsExactly("a", "b", "c");
+    assertThat(queuedB).isCompletedWithValue("b");
+    assertThat(queuedC).isCompletedWithValue("c");
+    assertThat(limiter.getQueuedCount()).isZero();
+    assertThat(limiter.getInFlightCount()).isZero();
+  }
+
+  @Test
+  public void itTimesOutBlockedCommands() {
+    ChromeInFlightLimiter limiter = newLimiter(OverloadPolicy.BLOCK, 10, Runnable::run);
+    limiter.submit(CompletableFuture::new);
+
+    assertThat(limiter.submit(CompletableFuture::new)).isCompletedExceptionally();
+  }
+
+  @Test
+  public void itWritesQueuedCommandsOnTheExecutorAheadOfNewOnes() {
+    List<Runnable> executor = new ArrayList<>();
+    ChromeInFlightLimiter limiter = newLimiter(OverloadPolicy.QUEUE, 1000, executor::add);
+    List<String> started = new ArrayList<>();
+    CompletableFuture<String> a = new CompletableFuture<>();
+
+    limiter.submit(() -> start(started, "a", a));
+    limiter.submit(() -> start(started, "b", new CompletableFuture<>()));
+    a.complete("a");
+
+    // b holds the freed slot but is only written by the executor, and c queues behind it
+    CompletableFuture<String> c = limiter.submit(() -> start(started, "c", a));
+    assertThat(started).containsExactly("a");
+    assertThat(limiter.getQueuedCount()).isEqualTo(2);
+
+    runAll(executor);
+    assertThat(started).containsExactly("a", "b");
+    assertThat(c).isNotDone();
+  }
+
+  @Test
+  public void itTimesOutCommandsFromWhenTheyAreQueued() throws Exception {
+    ChromeInFlightLimiter limiter = newLimiter(OverloadPolicy.QUEUE, 20, Runnable::run);
+    List<String> started = new ArrayList<>();
+    CompletableFuture<String> a = new CompletableFuture<>();
+
+    limiter.submit(() -> start(started, "a", a));
+    CompletableFuture<String> b = limiter.submit(() -> start(started, "b", a));
+
+    assertThatThrownBy(() -> b.get(5, TimeUnit.SECONDS))
+      .hasCauseInstanceOf(TimeoutException.class);
+    assertThat(limiter.getQueuedCount()).isZero();
+
+    a.complete("a");
+    assertThat(started).containsExactly("a");
+    assertThat(limiter.getInFlightCount()).isZero();
+  }
+
+  private static ChromeInFlightLimiter newLimiter(
+    OverloadPolicy policy,
+    long timeoutMillis,
+    Executor executor
+  ) {
+    return new ChromeInFlightLimiter(
+      ChromeInFlightLimit.of(1, policy),
+      timeoutMillis,
+      executor,
+      ChromeHashedWheelTimer.shared()
+    );
+  }
+
+  private static void runAll(List<Runnable> tasks) {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  private static CompletableFuture<String> start(
+    List<String> started,
+    String name,
+    CompletableFuture<String> future
+  ) {
+    started.add(name);
+    return future;
+  }
+}
@@ -0,0 +1,87 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.page.DomContentEventFiredEvent;
+import com.hubspot.chrome.devtools.client.core.page.LoadEventFiredEvent;
+import org.junit.Test;
+
+public class ChromeMessageDecoderTest {
+
+  private final ChromeMessageDecoder decoder = new ChromeMessageDecoder(
+    ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER
+  );
+
+  @Test
+  public void itDecodesResponses() throws Exception {
+    ChromeMessage message = decoder.decode(
+      "{\"id\":7,\"result\":{\"targetId\":\"abc\"},\"sessionId\":\"s1\"}"
+    );
+
+    assertThat(message.isResponse()).isTrue();
+    assertThat(message.getId()).isEqualTo(7);
+    assertThat(message.getSessionId()).isEqualTo("s1");
+    assertThat(message.toResponse().getResult().get("targetId").asText())
+      .isEqualTo("abc");
+  }
+
+  @Test
+  public void itDecodesEventsWhoseParamsComeBeforeTheMethod() throws Exception {
+    ChromeMessage message = decoder.decode(
+      "{\"params\":{\"timestamp\":1.5},\"method\":\"Page.domContentEventFired\"}"
+    );
+
+    assertThat(message.isEvent()).isTrue();
+    assertThat(message.getEventType()).isEqualTo(EventType.PAGE_DOM_CONTENT_EVENT_FIRED);
+    assertThat(((DomContentEventFiredEvent) message.getEvent()).getTimestamp().getValue())
+      .isEqualTo(1.5);
+  }
+
+  @Test
+  public void itIgnoresUnknownFieldsEvenWithAStrictMapper() throws Exception {
+    ChromeMessageDecoder decoder = new ChromeMessageDecoder(
+      new ObjectMapper().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+    );
+
+    ChromeMessage message = decoder.decode(
+      "{\"method\":\"Page.loadEventFired\"," +
+      "\"params\":{\"timestamp\":2.0,\"addedInChrome200\":true}}"
+    );
+
+    assertThat(((LoadEventFiredEvent) message.getEvent()).getTimestamp().getValue())
+      .isEqualTo(2.0);
+  }
+
+  @Test
+  public void itIgnoresUnknownEvents() throws Exception {
+    ChromeMessage message = decoder.decode(
+      "{\"method\":\"Made.up\",\"params\":{\"nested\":{\"method\":\"x\"}}}"
+    );
+
+    assertThat(message.isEvent()).isFalse();
+    assertThat(message.isResponse()).isFalse();
+    assertThat(message.isError()).isFalse();
+  }
+
+  @Test
+  public void itSkipsEventsNoOneIsSubscribedTo() throws Exception {
+    ChromeMessageDecoder decoder = new ChromeMessageDecoder(
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+      eventType -> eventType == EventType.PAGE_LOAD_EVENT_FIRED,
+      id -> null
+    );
+
+    ChromeMessage skipped = decoder.decode(
+      "{\"method\":\"Network.dataReceived\",\"params\":{\"requestId\":\"1\"}}"
+    );
+    ChromeMessage bound = decoder.decode(
+      "{\"params\":{\"timestamp\":2.0},\"method\":\"Page.loadEventFired\"}"
+    );
+
+    assertThat(skipped.isEvent()).isFalse();
+    assertThat(bound.getEventType()).isEqualTo(EventType.PAGE_LOAD_EVENT_FIRED);
+  }
+}
@@ -0,0 +1,46 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsMetrics.CommandOutcome;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSessionTest.RecordingWebSocketClient;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import org.junit.Test;
+
+public class ChromePrometheusExporterTest {
+
+  @Test
+  public void itRecordsAndExportsCommandsEventsAndBytes() {
+    ChromeDevToolsMetricsRecorder recorder = new ChromeDevToolsMetricsRecorder();
+    RecordingWebSocketClient client = new RecordingWebSocketClient(recorder);
+    client.respondTo("Page.enable", "{}");
+    ChromeDevToolsSession session = ChromeDevToolsSessionTest.newSession(client);
+    recorder.registerGauge("executor_queue_depth", () -> 3);
+
+    session.send(new ChromeRequest("Page.enable"));
+    // Nobody listens for it, but it still counts
+    client.onMessage(
+      "{\"method\":\"Page.loadEventFired\",\"params\":{\"timestamp\":1.0}}"
+    );
+
+    assertThat(recorder.getCommandCount("Page.enable", CommandOutcome.SUCCESS))
+      .isEqualTo(1);
+    assertThat(recorder.getInFlightCommandCount()).isZero();
+    assertThat(recorder.getEventCount(EventType.PAGE_LOAD_EVENT_FIRED)).isEqualTo(1);
+    assertThat(recorder.getBytesSent(null)).isEqualTo(client.getSent().get(0).length());
+    assertThat(recorder.getBytesReceived(null)).isGreaterThan(0);
+
+    assertThat(new ChromePrometheusExporter(recorder).scrape())
+      .contains(
+        "chrome_devtools_commands_total{method=\"Page.enable\",outcome=\"success\"} 1\n",
+        "chrome_devtools_command_latency_seconds_bucket" +
+        "{method=\"Page.enable\",le=\"+Inf\"} 1\n",
+        "chrome_devtools_command_latency_seconds_count{method=\"Page.enable\"} 1\n",
+        "chrome_devtools_events_total{event=\"Page.loadEventFired\"} 1\n",
+        "chrome_devtools_bytes_sent_total{session=\"\"} ",
+        "# TYPE chrome_devtools_executor_queue_depth gauge\n",
+        "chrome_devtools_executor_queue_depth 3\n"
+      );
+  }
+}
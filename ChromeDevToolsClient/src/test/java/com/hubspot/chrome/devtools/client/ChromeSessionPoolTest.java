@@ -0,0 +1,201 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSessionTest.RecordingWebSocketClient;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class ChromeSessionPoolTest {
+
+  private final List<ChromeDevToolsSession> created = new CopyOnWriteArrayList<>();
+  private final Set<ChromeDevToolsSession> broken = ConcurrentHashMap.newKeySet();
+  private final Set<ChromeDevToolsSession> closed = ConcurrentHashMap.newKeySet();
+
+  @Test
+  public void itReusesWarmSessions() {
+    try (ChromeSessionPool pool = newPool(1, 2)) {
+      assertThat(created).hasSize(1);
+
+      ChromeDevToolsSession session;
+      try (ChromeSessionPool.Lease lease = pool.lease()) {
+        session = lease.getSession();
+        assertThat(pool.getLeasedCount()).isEqualTo(1);
+      }
+
+      try (ChromeSessionPool.Lease lease = pool.lease()) {
+        assertThat(lease.getSession()).isSameAs(session);
+      }
+      assertThat(pool.getLeasedCount()).isZero();
+      assertThat(closed).isEmpty();
+    }
+  }
+
+  @Test
+  public void itEvictsUnhealthySessions() {
+    try (ChromeSessionPool pool = newPool(1, 2)) {
+      ChromeDevToolsSession warm = created.get(0);
+      broken.add(warm);
+
+      try (ChromeSessionPool.Lease lease = pool.lease()) {
+        assertThat(lease.getSession()).isNotSameAs(warm);
+        lease.invalidate();
+      }
+
+      assertThat(closed).hasSize(2).contains(warm);
+    }
+  }
+
+  @Test
+  public void itTimesOutWhenEverySessionIsLeased() {
+    try (ChromeSessionPool pool = newPool(0, 1)) {
+      ChromeSessionPool.Lease lease = pool.lease();
+
+      assertThatThrownBy(pool::lease)
+        .isInstanceOf(ChromeDevToolsException.class)
+        .hasMessageContaining("Timed out");
+
+      lease.close();
+      pool.lease().close();
+    }
+  }
+
+  @Test
+  public void itCountsWarmingSessionsAgainstMaxSessions() throws Exception {
+    CountDownLatch connecting = new CountDownLatch(1);
+    CountDownLatch connected = new CountDownLatch(1);
+    try (
+      ChromeSessionPool pool = new ChromeSessionPool.Builder(() -> {
+        connecting.countDown();
+        Uninterruptibles.awaitUninterruptibly(connected);
+        return newSession();
+      })
+        .setHealthCheck(session -> true)
+        .setMinIdleSessions(1)
+        .setMaxSessions(1)
+        .setLeaseTimeoutMillis(1000)
+        .setWarmUp(false)
+        .build()
+    ) {
+      new Thread(pool::replenish).start();
+      assertThat(connecting.await(1, TimeUnit.SECONDS)).isTrue();
+
+      CompletableFuture<ChromeSessionPool.Lease> lease = CompletableFuture.supplyAsync(
+        pool::lease
+      );
+      assertThatThrownBy(() -> lease.get(100, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+
+      connected.countDown();
+      assertThat(lease.get(1, TimeUnit.SECONDS).getSession()).isSameAs(created.get(0));
+      assertThat(created).hasSize(1);
+      assertThat(pool.getIdleCount()).isZero();
+    }
+  }
+
+  @Test
+  public void itOpensEachSessionOnItsOwnTarget() throws Exception {
+    AtomicInteger targets = new AtomicInteger();
+    RecordingWebSocketClient client = new RecordingWebSocketClient() {
+      @Override
+      public void send(String text) {
+        super.send(text);
+        String method = methodOf(text);
+        if (method.equals("Target.createBrowserContext")) {
+          reply(text, "browserContextId", "context-" + targets.incrementAndGet());
+        } else if (method.equals("Target.createTarget")) {
+          reply(text, "targetId", "target-" + targets.get());
+        } else if (method.equals("Target.attachToTarget")) {
+          reply(text, "sessionId", "session-" + targets.get());
+        }
+      }
+
+      private void reply(String request, String field, String value) {
+        onMessage(
+          String.format(
+            "{\"id\":%s,\"result\":{\"%s\":\"%s\"}}",
+            idOf(request),
+            field,
+            value
+          )
+        );
+      }
+    }
+      .respondTo("Runtime.evaluate", "{\"result\":{\"type\":\"number\",\"value\":1}}")
+      .respondTo("Target.disposeBrowserContext", "{}");
+    ChromeDevToolsSession browser = new ChromeDevToolsSession(
+      client,
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE
+    ) {
+      @Override
+      public void close() {
+        closed.add(this);
+      }
+    };
+
+    try (
+      ChromeSessionPool pool = new ChromeSessionPool.Builder(
+        new ChromeSessionPool.BrowserTargets(() -> browser)
+      )
+        .setMinIdleSessions(1)
+        .setMaxSessions(2)
+        .build();
+      ChromeSessionPool.Lease first = pool.lease();
+      ChromeSessionPool.Lease second = pool.lease()
+    ) {
+      assertThat(first.getSession().getSessionId().getValue()).isEqualTo("session-1");
+      assertThat(second.getSession().getSessionId().getValue()).isEqualTo("session-2");
+      assertThat(sent(client, "Target.attachToTarget"))
+        .extracting(text -> text.replaceAll(".*\"targetId\":\"([^\"]+)\".*", "$1"))
+        .containsExactly("target-1", "target-2");
+      // The warm session was health checked with a round trip before it was handed out
+      assertThat(sent(client, "Runtime.evaluate")).isNotEmpty();
+    }
+    assertThat(closed).containsExactly(browser);
+  }
+
+  private static List<String> sent(RecordingWebSocketClient client, String method) {
+    return client
+      .getSent()
+      .stream()
+      .filter(text -> RecordingWebSocketClient.methodOf(text).equals(method))
+      .collect(Collectors.toList());
+  }
+
+  private ChromeSessionPool newPool(int minIdleSessions, int maxSessions) {
+    return new ChromeSessionPool.Builder(this::newSession)
+      .setHealthCheck(session -> !broken.contains(session))
+      .setMinIdleSessions(minIdleSessions)
+      .setMaxSessions(maxSessions)
+      .setLeaseTimeoutMillis(50)
+      .build();
+  }
+
+  private ChromeDevToolsSession newSession() {
+    ChromeDevToolsSession session = new ChromeDevToolsSession(
+      new RecordingWebSocketClient(),
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE
+    ) {
+      @Override
+      public void close() {
+        closed.add(this);
+      }
+    };
+    created.add(session);
+    return session;
+  }
+}
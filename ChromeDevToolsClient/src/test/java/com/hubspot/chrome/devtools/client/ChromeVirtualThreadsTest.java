@@ -0,0 +1,65 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ChromeVirtualThreadsTest {
+
+  @Test
+  public void itRunsEachTaskOnANewVirtualThread() throws Exception {
+    assumeTrue(ChromeVirtualThreads.isSupported());
+
+    ExecutorService executor = ChromeVirtualThreads.newThreadPerTaskExecutor();
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+      assertThat(thread.getName()).startsWith("chrome-devtools-virtual-");
+      assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void itRefusesVirtualThreadsOnOlderJvms() {
+    assumeFalse(ChromeVirtualThreads.isSupported());
+
+    assertThatThrownBy(() ->
+        new ChromeDevToolsClient.Builder().setUseVirtualThreads(true).build()
+      )
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessageContaining("Java 21");
+  }
+
+  @Test
+  public void itFallsBackToUnsupportedWhenThereIsNoOfVirtual() {
+    assertThat(ChromeVirtualThreads.isSupported(Object.class)).isFalse();
+    assertThatThrownBy(() -> ChromeVirtualThreads.newThreadPerTaskExecutor(Object.class))
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessageContaining("Java 21");
+  }
+
+  @Test
+  public void itRefusesAnExecutorServiceAlongsideVirtualThreads() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertThatThrownBy(() ->
+          new ChromeDevToolsClient.Builder()
+            .setExecutorService(executor)
+            .setUseVirtualThreads(true)
+            .build()
+        )
+        .isInstanceOf(IllegalStateException.class);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
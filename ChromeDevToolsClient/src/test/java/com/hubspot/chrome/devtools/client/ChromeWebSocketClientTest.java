@@ -0,0 +1,141 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hubspot.chrome.devtools.base.ChromeRequest;
+import com.hubspot.chrome.devtools.base.ChromeResponse;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+public class ChromeWebSocketClientTest {
+
+  @Test
+  public void itCompletesPendingResponsesAsSoonAsTheyArrive() throws Exception {
+    ChromeWebSocketClient client = newClient(1000L);
+
+    CompletableFuture<ChromeResponse> future = client.getResponseAsync(1);
+    assertThat(future).isNotDone();
+
+    client.onMessage("{\"id\":1,\"result\":{\"value\":\"abc\"}}");
+
+    assertThat(future).isDone();
+    assertThat(future.get().getResult().get("value").asText()).isEqualTo("abc");
+  }
+
+  @Test
+  public void itReturnsResponsesThatArrivedBeforeTheWaiter() {
+    ChromeWebSocketClient client = newClient(1000L);
+
+    client.onMessage("{\"id\":2,\"result\":{}}");
+
+    assertThat(client.getResponse(2).getId()).isEqualTo(2);
+  }
+
+  @Test
+  public void itFailsPendingResponsesWithChromeErrors() {
+    ChromeWebSocketClient client = newClient(1000L);
+
+    client.onMessage(
+      "{\"id\":3,\"error\":{\"code\":-32000,\"message\":\"Not allowed\"}}"
+    );
+
+    assertThatThrownBy(() -> client.getResponse(3))
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessage("Not allowed");
+  }
+
+  @Test
+  public void itTimesOutPendingResponses() {
+    ChromeWebSocketClient client = newClient(50L);
+
+    assertThatThrownBy(() -> client.getResponse(4))
+      .isInstanceOf(ChromeDevToolsException.class);
+  }
+
+  @Test
+  public void itTimesOutRequestsWithTheirOwnDeadline() {
+    ChromeWebSocketClient client = newClient(60_000L);
+    ChromeRequest request = new ChromeRequest("Page.enable").setTimeoutMillis(20);
+
+    CompletableFuture<ChromeMessage> future = client.expectResponse(request);
+
+    assertThatThrownBy(() -> ChromeWebSocketClient.await(future))
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasCauseInstanceOf(TimeoutException.class);
+  }
+
+  @Test
+  public void itFailsTimedOutRequestsOffTheTimerThread() throws Exception {
+    ChromeWebSocketClient client = newClient(60_000L);
+    ChromeRequest request = new ChromeRequest("Page.enable").setTimeoutMillis(20);
+    CompletableFuture<String> failedOn = new CompletableFuture<>();
+
+    client
+      .expectResponse(request)
+      .whenComplete((response, throwable) ->
+        failedOn.complete(Thread.currentThread().getName())
+      );
+
+    assertThat(failedOn.get(5, TimeUnit.SECONDS)).isNotEqualTo("ChromeHashedWheelTimer");
+  }
+
+  @Test
+  public void itDropsResponsesThatArriveAfterCancellation() {
+    ChromeWebSocketClient client = newClient(1000L);
+    ChromeRequest request = new ChromeRequest("Page.enable");
+
+    client.expectResponse(request).cancel(false);
+    client.onMessage("{\"id\":" + request.getId() + ",\"result\":{}}");
+
+    // Had the late response been kept, this waiter would find it.
+    assertThat(client.expectResponse(request)).isNotDone();
+  }
+
+  @Test
+  public void itEvictsResponsesThatNobodyClaims() throws Exception {
+    ChromeWebSocketClient client = newClient(20L);
+
+    client.onMessage("{\"id\":5,\"result\":{}}");
+    client.onMessage(
+      "{\"id\":6,\"error\":{\"code\":-32000,\"message\":\"Nope\"}}"
+    );
+    assertThat(client.getUnclaimedResponseCount()).isEqualTo(2);
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (
+      client.getEvictedResponseCount() < 2 && System.currentTimeMillis() < deadline
+    ) {
+      Thread.sleep(10);
+    }
+
+    assertThat(client.getEvictedResponseCount()).isEqualTo(2);
+    assertThat(client.getUnclaimedResponseCount()).isZero();
+  }
+
+  @Test
+  public void itStopsCountingResponsesOnceClaimed() {
+    ChromeWebSocketClient client = newClient(1000L);
+
+    client.onMessage("{\"id\":7,\"result\":{}}");
+    client.getResponse(7);
+
+    assertThat(client.getUnclaimedResponseCount()).isZero();
+    assertThat(client.getEvictedResponseCount()).isZero();
+  }
+
+  private static ChromeWebSocketClient newClient(long actionTimeoutMillis) {
+    return new ChromeWebSocketClient(
+      URI.create(""),
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+      new ConcurrentHashMap<>(),
+      ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE,
+      actionTimeoutMillis
+    );
+  }
+}
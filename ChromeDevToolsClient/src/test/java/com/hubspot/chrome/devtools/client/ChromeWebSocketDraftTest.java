@@ -0,0 +1,66 @@
+package com.hubspot.chrome.devtools.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSessionTest.RecordingWebSocketClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.framing.ContinuousFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.TextFrame;
+import org.junit.Test;
+
+public class ChromeWebSocketDraftTest {
+
+  @Test
+  public void itDeliversFragmentedTextMessagesWithoutJoiningThem() throws Exception {
+    List<List<ByteBuffer>> received = new CopyOnWriteArrayList<>();
+    ChromeWebSocketClient client = new RecordingWebSocketClient() {
+      @Override
+      void onMessage(List<ByteBuffer> payloads) {
+        received.add(payloads);
+      }
+    };
+    ChromeWebSocketDraft draft = new ChromeWebSocketDraft();
+    WebSocketImpl webSocket = new WebSocketImpl(client, draft);
+
+    draft.processFrame(webSocket, frame(new TextFrame(), "{\"id\":1,", false));
+    draft.processFrame(webSocket, frame(new ContinuousFrame(), "\"result\":", false));
+    assertThat(received).isEmpty();
+
+    draft.processFrame(webSocket, frame(new ContinuousFrame(), "{}}", true));
+    draft.processFrame(webSocket, frame(new TextFrame(), "{\"id\":2}", true));
+
+    assertThat(received).hasSize(2);
+    assertThat(received.get(0)).hasSize(3);
+    assertThat(received.get(1)).hasSize(1);
+  }
+
+  @Test
+  public void itDecodesMessagesSplitInsideAMultiByteCharacter() throws Exception {
+    String json = "{\"id\":1,\"result\":{\"value\":\"caf\u00e9\"}}";
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    int split = bytes.length - 4; // between the two bytes of the é
+    ChromeMessage message = new ChromeMessageDecoder(
+      ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER
+    )
+      .decode(
+        List.of(
+          ByteBuffer.wrap(bytes, 0, split).slice(),
+          ByteBuffer.wrap(bytes, split, bytes.length - split).slice()
+        )
+      );
+
+    assertThat(message.toResponse().getResult().get("value").asText())
+      .isEqualTo("caf\u00e9");
+  }
+
+  private static DataFrame frame(DataFrame frame, String payload, boolean fin) {
+    frame.setPayload(ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)));
+    frame.setFin(fin);
+    return frame;
+  }
+}
@@ -1,12 +1,16 @@
 package com.hubspot.chrome.devtools.client;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.github.rholder.retry.Retryer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventDeserializer;
 import com.hubspot.chrome.devtools.client.core.EventType;
 import com.hubspot.chrome.devtools.client.core.css.FontsUpdatedEvent;
 import com.hubspot.chrome.devtools.client.core.dom.ChildNodeRemovedEvent;
@@ -15,6 +19,7 @@ import com.hubspot.chrome.devtools.client.core.page.DomContentEventFiredEvent;
 import com.hubspot.chrome.devtools.client.core.runtime.CallArgument;
 import com.hubspot.chrome.devtools.client.core.runtime.ExceptionRevokedEvent;
 import com.hubspot.chrome.devtools.client.core.target.SessionID;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Objects;
@@ -135,6 +140,47 @@ public class SerializationTest {
       .isInstanceOf(FontsUpdatedEvent.class);
   }
 
+  @Test
+  public void itIgnoresUnknownFieldsEvenWithAStrictMapper() throws Exception {
+    SimpleModule module = new SimpleModule();
+    module.addDeserializer(Event.class, new EventDeserializer());
+    ObjectMapper objectMapper = new ObjectMapper()
+      .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+      .registerModule(module);
+
+    String json =
+      "{\"method\":\"DOM.childNodeRemoved\"," +
+      "\"params\":{\"parentNodeId\":1,\"nodeId\":2,\"addedInChrome200\":true}," +
+      "\"sessionId\":\"s1\"}";
+    assertThat(objectMapper.readValue(json, Event.class))
+      .isInstanceOf(ChildNodeRemovedEvent.class);
+    // Again, through the reader made for the first one
+    assertThat(objectMapper.readValue(json, Event.class))
+      .isInstanceOf(ChildNodeRemovedEvent.class);
+  }
+
+  @Test
+  public void itReadsTheMethodOfTheFrameNotOfItsParams() throws Exception {
+    ObjectMapper objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+
+    String json =
+      "{\"params\":{\"exceptionId\":1,\"nested\":{\"method\":\"DOM.documentUpdated\"}}," +
+      "\"method\":\"Runtime.exceptionRevoked\",\"sessionId\":\"s1\"}";
+    assertThat(objectMapper.readValue(json, Event.class))
+      .isInstanceOf(ExceptionRevokedEvent.class);
+  }
+
+  @Test
+  public void itFailsOnUnknownEvents() {
+    ObjectMapper objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+
+    String json = "{\"method\":\"Made.up\",\"params\":{}}";
+    assertThatThrownBy(() -> objectMapper.readValue(json, Event.class))
+      .isInstanceOf(IOException.class)
+      .hasMessageContaining("Made.up");
+  }
+
   static class SpyListener implements ChromeEventListener {
 
     private OnEventInvocation lastOnEventCallParams;
@@ -0,0 +1,90 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+/**
+ * Counts latencies in log-linear buckets: exact below 128, then 64 buckets per power of
+ * two, so any percentile read back is within about 1.6% of the latency recorded. Not
+ * thread-safe; each worker records into its own and they're merged afterwards.
+ */
+final class ChromeLatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_BUCKETS = SUB_BUCKETS << 1;
+  private static final int BUCKETS =
+    LINEAR_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS - 2) * SUB_BUCKETS;
+
+  private final long[] counts;
+  private long count;
+  private long sum;
+  private long max;
+
+  ChromeLatencyHistogram() {
+    this.counts = new long[BUCKETS];
+  }
+
+  void record(long value) {
+    long clamped = Math.max(0, value);
+    counts[bucketOf(clamped)]++;
+    count++;
+    sum += clamped;
+    max = Math.max(max, clamped);
+  }
+
+  void add(ChromeLatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    sum += other.sum;
+    max = Math.max(max, other.max);
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  long getMax() {
+    return max;
+  }
+
+  double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * The latency `percentile` percent of those recorded are at or below, e.g. 99.9, or 0
+   * if none were recorded.
+   */
+  long getPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(max, highestValueIn(i));
+      }
+    }
+    return max;
+  }
+
+  static int bucketOf(long value) {
+    if (value < LINEAR_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueIn(int bucket) {
+    if (bucket < LINEAR_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+    long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
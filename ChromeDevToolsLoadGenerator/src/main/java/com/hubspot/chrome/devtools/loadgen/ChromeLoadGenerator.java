@@ -0,0 +1,356 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsClient;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsClientDefaults;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSession;
+import com.hubspot.chrome.devtools.client.core.Event;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.testserver.ChromeEventStream;
+import com.hubspot.chrome.devtools.testserver.ChromeRecordings;
+import com.hubspot.chrome.devtools.testserver.ChromeReply;
+import com.hubspot.chrome.devtools.testserver.ChromeTestServer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives many sessions at once, each with its own worker sending a weighted mix of
+ * commands back to back, and reports the throughput and latency percentiles of each
+ * protocol method. Runs against a chrome started with `--remote-debugging-port`, or
+ * against a {@link ChromeTestServer} that can also flood every session with events:
+ *
+ *    java -cp ... com.hubspot.chrome.devtools.loadgen.ChromeLoadGenerator \
+ *      --sessions=64 --mix=navigate=1,evaluate=8,screenshot=1 \
+ *      --events-per-second=2000 --latency-millis=2 --output=run.json
+ *
+ * Nothing is measured until the warmup is over, so the JIT and the connections have
+ * settled first.
+ */
+public class ChromeLoadGenerator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeLoadGenerator.class);
+
+  private static final List<EventType> COUNTED_EVENTS = ImmutableList.of(
+    EventType.NETWORK_REQUEST_WILL_BE_SENT,
+    EventType.NETWORK_RESPONSE_RECEIVED,
+    EventType.PAGE_LOAD_EVENT_FIRED,
+    EventType.RUNTIME_CONSOLE_APICALLED
+  );
+
+  private final ChromeLoadOptions options;
+  private final ObjectMapper objectMapper;
+
+  public ChromeLoadGenerator(ChromeLoadOptions options) {
+    this.options = options;
+    this.objectMapper = ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER;
+  }
+
+  public static void main(String[] args) throws Exception {
+    ChromeLoadOptions options;
+    try {
+      options = ChromeLoadOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println();
+      System.err.println(ChromeLoadOptions.USAGE);
+      System.exit(2);
+      return;
+    }
+
+    ChromeLoadGenerator generator = new ChromeLoadGenerator(options);
+    ChromeLoadReport report = generator.run();
+    System.out.print(report);
+    if (options.getOutput() != null) {
+      Files.write(
+        options.getOutput(),
+        generator.objectMapper
+          .writerWithDefaultPrettyPrinter()
+          .writeValueAsBytes(report.toJson(generator.objectMapper))
+      );
+    }
+  }
+
+  public ChromeLoadReport run() throws Exception {
+    Deque<AutoCloseable> resources = new ArrayDeque<>();
+    ExecutorService callbackExecutor = Executors.newCachedThreadPool(
+      threadFactory("chrome-load-callbacks-%d")
+    );
+    ExecutorService workerExecutor = Executors.newFixedThreadPool(
+      options.getSessions(),
+      threadFactory("chrome-load-worker-%d")
+    );
+    resources.push(callbackExecutor::shutdownNow);
+    resources.push(workerExecutor::shutdownNow);
+    try {
+      Map<EventType, LongAdder> eventCounts = new EnumMap<>(EventType.class);
+      for (EventType eventType : COUNTED_EVENTS) {
+        eventCounts.put(eventType, new LongAdder());
+      }
+      ChromeTestServer server = null;
+      if (options.isStandIn()) {
+        server = startStandIn();
+        resources.push(server);
+      }
+      List<ChromeDevToolsSession> sessions = openSessions(
+        server,
+        callbackExecutor,
+        resources
+      );
+      for (ChromeDevToolsSession session : sessions) {
+        for (EventType eventType : COUNTED_EVENTS) {
+          LongAdder count = eventCounts.get(eventType);
+          session.addEventConsumer(eventType, (Event event) -> count.increment());
+        }
+        session.getNetwork().enable();
+        session.getPage().enable();
+        session.getRuntime().enable();
+      }
+      if (server != null && options.getEventsPerSecond() > 0) {
+        ChromeEventStream stream = startEvents(server);
+        resources.push(stream::stop);
+      }
+
+      long start = System.nanoTime();
+      long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(options.getWarmupMillis());
+      long measureUntil =
+        measureFrom + TimeUnit.MILLISECONDS.toNanos(options.getDurationMillis());
+      List<Future<Worker>> workers = new ArrayList<>(sessions.size());
+      for (ChromeDevToolsSession session : sessions) {
+        workers.add(
+          workerExecutor.submit(new Worker(session, measureFrom, measureUntil))
+        );
+      }
+
+      sleepUntil(measureFrom);
+      Map<EventType, Long> eventCountsBefore = sum(eventCounts);
+      sleepUntil(measureUntil);
+      Map<EventType, Long> eventCountsAfter = sum(eventCounts);
+
+      Map<String, ChromeLatencyHistogram> latencies = new HashMap<>();
+      Map<String, Long> errorCounts = new HashMap<>();
+      for (Future<Worker> future : workers) {
+        Worker worker = future.get();
+        worker.latencies.forEach(
+          (method, histogram) ->
+            latencies
+              .computeIfAbsent(method, ignored -> new ChromeLatencyHistogram())
+              .add(histogram)
+        );
+        worker.errorCounts.forEach(
+          (method, count) -> errorCounts.merge(method, count, Long::sum)
+        );
+      }
+      Map<String, Long> events = new HashMap<>();
+      for (EventType eventType : COUNTED_EVENTS) {
+        events.put(
+          eventType.getType(),
+          eventCountsAfter.get(eventType) - eventCountsBefore.get(eventType)
+        );
+      }
+      return new ChromeLoadReport(options, latencies, errorCounts, events);
+    } finally {
+      closeAll(resources);
+    }
+  }
+
+  private List<ChromeDevToolsSession> openSessions(
+    @Nullable ChromeTestServer server,
+    ExecutorService callbackExecutor,
+    Deque<AutoCloseable> resources
+  ) throws Exception {
+    List<ChromeDevToolsSession> sessions = new ArrayList<>(options.getSessions());
+    if (server != null) {
+      URI uri = server.getUri();
+      for (int i = 0; i < options.getSessions(); i++) {
+        ChromeDevToolsSession session = new ChromeDevToolsSession(
+          uri,
+          objectMapper,
+          callbackExecutor,
+          options.getActionTimeoutMillis()
+        );
+        resources.push(session);
+        sessions.add(session);
+      }
+      awaitConnections(server);
+    } else {
+      String endpoint = options.getEndpoint();
+      int colon = endpoint.lastIndexOf(':');
+      ChromeDevToolsClient client = new ChromeDevToolsClient.Builder()
+        .setExecutorService(callbackExecutor)
+        .setObjectMapper(objectMapper)
+        .setActionTimeoutMillis(options.getActionTimeoutMillis())
+        .build();
+      resources.push(client);
+      ChromeDevToolsSession browser = client.connectToBrowser(
+        endpoint.substring(0, colon),
+        Integer.parseInt(endpoint.substring(colon + 1))
+      );
+      resources.push(browser);
+      for (int i = 0; i < options.getSessions(); i++) {
+        // Its own browser context, so closing the session closes the target too
+        ChromeDevToolsSession session = browser.attachToNewBrowserContext("about:blank");
+        resources.push(session);
+        sessions.add(session);
+      }
+    }
+    return sessions;
+  }
+
+  private ChromeTestServer startStandIn() throws InterruptedException {
+    ChromeTestServer server = new ChromeTestServer();
+    server
+      .respondTo("Network.enable", "{}")
+      .respondTo("Page.enable", "{}")
+      .respondTo("Runtime.enable", "{}")
+      .respondFromRecordings("Page.navigate", "Runtime.evaluate")
+      .respondTo(
+        "Page.captureScreenshot",
+        ChromeReply.payloadOfSize(options.getScreenshotBytes())
+      )
+      .setLatency(options.getLatencyMillis(), options.getJitterMillis());
+    server.start();
+    return server;
+  }
+
+  private ChromeEventStream startEvents(ChromeTestServer server) {
+    List<String> frames = new ArrayList<>(COUNTED_EVENTS.size());
+    for (EventType eventType : COUNTED_EVENTS) {
+      frames.add(ChromeRecordings.load(eventType.getType()));
+    }
+    return server.streamEvents(frames, options.getEventsPerSecond());
+  }
+
+  // A session can be connected a moment before the server has registered it, and
+  // events sent in between would go to fewer sessions than asked for
+  private void awaitConnections(ChromeTestServer server) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (
+      server.getConnectionCount() < options.getSessions() &&
+      System.nanoTime() < deadline
+    ) {
+      Thread.sleep(5);
+    }
+  }
+
+  private static Map<EventType, Long> sum(Map<EventType, LongAdder> counts) {
+    Map<EventType, Long> sums = new EnumMap<>(EventType.class);
+    counts.forEach((eventType, count) -> sums.put(eventType, count.sum()));
+    return sums;
+  }
+
+  private static void sleepUntil(long nanoTime) throws InterruptedException {
+    long remaining;
+    while ((remaining = nanoTime - System.nanoTime()) > 0) {
+      TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+  }
+
+  private static void closeAll(Deque<AutoCloseable> resources) {
+    while (!resources.isEmpty()) {
+      try {
+        resources.pop().close();
+      } catch (Exception e) {
+        LOG.warn("Could not close a load generator resource", e);
+      }
+    }
+  }
+
+  private static ThreadFactory threadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+  }
+
+  /**
+   * Sends one command at a time through its session until the run is over, keeping its
+   * own latencies so workers never contend on them.
+   */
+  private final class Worker implements Callable<Worker> {
+
+    private final ChromeDevToolsSession session;
+    private final long measureFrom;
+    private final long measureUntil;
+    private final ChromeLoadOperation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<String, ChromeLatencyHistogram> latencies;
+    private final Map<String, Long> errorCounts;
+
+    private Worker(ChromeDevToolsSession session, long measureFrom, long measureUntil) {
+      this.session = session;
+      this.measureFrom = measureFrom;
+      this.measureUntil = measureUntil;
+      this.operations = new ChromeLoadOperation[options.getMix().size()];
+      this.cumulativeWeights = new int[operations.length];
+      this.latencies = new HashMap<>();
+      this.errorCounts = new HashMap<>();
+
+      int i = 0;
+      int total = 0;
+      for (Map.Entry<ChromeLoadOperation, Integer> weight : options.getMix().entrySet()) {
+        total += weight.getValue();
+        operations[i] = weight.getKey();
+        cumulativeWeights[i++] = total;
+      }
+    }
+
+    @Override
+    public Worker call() {
+      long now;
+      while ((now = System.nanoTime()) < measureUntil) {
+        ChromeLoadOperation operation = next();
+        boolean measured = now >= measureFrom;
+        try {
+          operation.run(session, options);
+          if (measured) {
+            latencies
+              .computeIfAbsent(
+                operation.getMethod(),
+                ignored -> new ChromeLatencyHistogram()
+              )
+              .record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now));
+          }
+        } catch (RuntimeException e) {
+          if (measured) {
+            errorCounts.merge(operation.getMethod(), 1L, Long::sum);
+          }
+          LOG.debug("{} failed", operation.getMethod(), e);
+          if (!session.isConnected()) {
+            LOG.warn("Session {} disconnected, stopping its worker", session.getId());
+            break;
+          }
+        }
+      }
+      return this;
+    }
+
+    private ChromeLoadOperation next() {
+      int pick = ThreadLocalRandom
+        .current()
+        .nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+      for (int i = 0; i < cumulativeWeights.length; i++) {
+        if (pick < cumulativeWeights[i]) {
+          return operations[i];
+        }
+      }
+      throw new IllegalStateException("Picked past the last weight");
+    }
+  }
+}
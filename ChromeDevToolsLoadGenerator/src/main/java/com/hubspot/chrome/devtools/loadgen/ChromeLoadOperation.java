@@ -0,0 +1,51 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSession;
+import com.hubspot.chrome.devtools.client.core.page.NavigateResult;
+import com.hubspot.chrome.devtools.client.core.runtime.EvaluateResult;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+
+/**
+ * What a load generator worker can do with its session, each one protocol command.
+ */
+public enum ChromeLoadOperation {
+  NAVIGATE("Page.navigate") {
+    @Override
+    void run(ChromeDevToolsSession session, ChromeLoadOptions options) {
+      NavigateResult result = session.navigate(options.getUrl());
+      if (result.errorText != null) {
+        throw new ChromeDevToolsException(result.errorText);
+      }
+    }
+  },
+  EVALUATE("Runtime.evaluate") {
+    @Override
+    void run(ChromeDevToolsSession session, ChromeLoadOptions options) {
+      EvaluateResult result = session.evaluate(options.getExpression());
+      if (result.exceptionDetails != null) {
+        throw new ChromeDevToolsException(result.exceptionDetails.getText());
+      }
+    }
+  },
+  SCREENSHOT("Page.captureScreenshot") {
+    @Override
+    void run(ChromeDevToolsSession session, ChromeLoadOptions options) {
+      session.captureScreenshot();
+    }
+  };
+
+  private final String method;
+
+  ChromeLoadOperation(String method) {
+    this.method = method;
+  }
+
+  /**
+   * The protocol method the operation sends, which its latencies are reported under.
+   */
+  public String getMethod() {
+    return method;
+  }
+
+  abstract void run(ChromeDevToolsSession session, ChromeLoadOptions options);
+}
@@ -0,0 +1,346 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import com.google.common.base.Splitter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * How a {@link ChromeLoadGenerator} run is set up, built with {@link Builder} or parsed
+ * from `--name=value` arguments (see {@link #USAGE}).
+ */
+public final class ChromeLoadOptions {
+
+  /**
+   * The endpoint that runs against a {@link
+   * com.hubspot.chrome.devtools.testserver.ChromeTestServer} started for the run.
+   */
+  public static final String STAND_IN_ENDPOINT = "stand-in";
+
+  public static final String USAGE = String.join(
+    "\n",
+    "Usage: ChromeLoadGenerator [--name=value ...]",
+    "",
+    "  --endpoint=stand-in|HOST:PORT  chrome's debugging address, or a stand-in server",
+    "                                 started for the run (default stand-in)",
+    "  --sessions=N                   concurrent sessions, one worker each (default 8)",
+    "  --duration-seconds=N           how long to measure for (default 30)",
+    "  --warmup-seconds=N             how long to run before measuring (default 5)",
+    "  --mix=OP=WEIGHT,...            operations to pick from, by weight, of navigate,",
+    "                                 evaluate and screenshot (default evaluate=1)",
+    "  --url=URL                      the page navigate loads (default about:blank)",
+    "  --expression=JS                the script evaluate runs (default 1 + 1)",
+    "  --action-timeout-millis=N      how long a command may take (default 10000)",
+    "  --output=PATH                  writes the report there as JSON",
+    "",
+    "  With the stand-in server only:",
+    "  --events-per-second=N          events sent to each session (default 0)",
+    "  --latency-millis=N             delay before every reply (default 0)",
+    "  --jitter-millis=N              up to this much more delay, at random (default 0)",
+    "  --screenshot-bytes=N           base64 size of each screenshot (default 262144)"
+  );
+
+  private final String endpoint;
+  private final int sessions;
+  private final long durationMillis;
+  private final long warmupMillis;
+  private final Map<ChromeLoadOperation, Integer> mix;
+  private final String url;
+  private final String expression;
+  private final long actionTimeoutMillis;
+  private final Path output;
+  private final double eventsPerSecond;
+  private final long latencyMillis;
+  private final long jitterMillis;
+  private final int screenshotBytes;
+
+  private ChromeLoadOptions(Builder builder) {
+    this.endpoint = builder.endpoint;
+    this.sessions = builder.sessions;
+    this.durationMillis = builder.durationMillis;
+    this.warmupMillis = builder.warmupMillis;
+    this.mix = Collections.unmodifiableMap(new EnumMap<>(builder.mix));
+    this.url = builder.url;
+    this.expression = builder.expression;
+    this.actionTimeoutMillis = builder.actionTimeoutMillis;
+    this.output = builder.output;
+    this.eventsPerSecond = builder.eventsPerSecond;
+    this.latencyMillis = builder.latencyMillis;
+    this.jitterMillis = builder.jitterMillis;
+    this.screenshotBytes = builder.screenshotBytes;
+  }
+
+  /**
+   * Parses `--name=value` arguments, throwing an IllegalArgumentException naming the
+   * first one that isn't valid.
+   */
+  public static ChromeLoadOptions parse(String... args) {
+    Builder builder = new Builder();
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      if (!arg.startsWith("--") || equals < 0) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      String name = arg.substring(2, equals);
+      String value = arg.substring(equals + 1);
+      try {
+        set(builder, name, value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Expected a number but got " + arg, e);
+      }
+    }
+    return builder.build();
+  }
+
+  private static void set(Builder builder, String name, String value) {
+    switch (name) {
+      case "endpoint":
+        builder.setEndpoint(value);
+        break;
+      case "sessions":
+        builder.setSessions(Integer.parseInt(value));
+        break;
+      case "duration-seconds":
+        builder.setDurationMillis(Math.round(Double.parseDouble(value) * 1000));
+        break;
+      case "warmup-seconds":
+        builder.setWarmupMillis(Math.round(Double.parseDouble(value) * 1000));
+        break;
+      case "mix":
+        builder.setMix(parseMix(value));
+        break;
+      case "url":
+        builder.setUrl(value);
+        break;
+      case "expression":
+        builder.setExpression(value);
+        break;
+      case "action-timeout-millis":
+        builder.setActionTimeoutMillis(Long.parseLong(value));
+        break;
+      case "output":
+        builder.setOutput(Paths.get(value));
+        break;
+      case "events-per-second":
+        builder.setEventsPerSecond(Double.parseDouble(value));
+        break;
+      case "latency-millis":
+        builder.setLatencyMillis(Long.parseLong(value));
+        break;
+      case "jitter-millis":
+        builder.setJitterMillis(Long.parseLong(value));
+        break;
+      case "screenshot-bytes":
+        builder.setScreenshotBytes(Integer.parseInt(value));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown option --" + name);
+    }
+  }
+
+  private static Map<ChromeLoadOperation, Integer> parseMix(String value) {
+    Map<ChromeLoadOperation, Integer> mix = new EnumMap<>(ChromeLoadOperation.class);
+    Map<String, String> weights = Splitter
+      .on(',')
+      .trimResults()
+      .omitEmptyStrings()
+      .withKeyValueSeparator('=')
+      .split(value);
+    for (Map.Entry<String, String> weight : weights.entrySet()) {
+      ChromeLoadOperation operation;
+      try {
+        operation = ChromeLoadOperation.valueOf(weight.getKey().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown operation " + weight.getKey(), e);
+      }
+      mix.put(operation, Integer.parseInt(weight.getValue()));
+    }
+    return mix;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public boolean isStandIn() {
+    return STAND_IN_ENDPOINT.equals(endpoint);
+  }
+
+  public int getSessions() {
+    return sessions;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public long getWarmupMillis() {
+    return warmupMillis;
+  }
+
+  /**
+   * The relative weight of each operation; those missing are never run.
+   */
+  public Map<ChromeLoadOperation, Integer> getMix() {
+    return mix;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public long getActionTimeoutMillis() {
+    return actionTimeoutMillis;
+  }
+
+  @Nullable
+  public Path getOutput() {
+    return output;
+  }
+
+  public double getEventsPerSecond() {
+    return eventsPerSecond;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public long getJitterMillis() {
+    return jitterMillis;
+  }
+
+  public int getScreenshotBytes() {
+    return screenshotBytes;
+  }
+
+  public static class Builder {
+
+    private String endpoint = STAND_IN_ENDPOINT;
+    private int sessions = 8;
+    private long durationMillis = 30_000;
+    private long warmupMillis = 5_000;
+    private Map<ChromeLoadOperation, Integer> mix = Collections.singletonMap(
+      ChromeLoadOperation.EVALUATE,
+      1
+    );
+    private String url = "about:blank";
+    private String expression = "1 + 1";
+    private long actionTimeoutMillis = 10_000;
+    private Path output;
+    private double eventsPerSecond;
+    private long latencyMillis;
+    private long jitterMillis;
+    private int screenshotBytes = 256 << 10;
+
+    /**
+     * `host:port` of a chrome started with `--remote-debugging-port`, whose sessions are
+     * new targets attached over one browser connection, or {@link #STAND_IN_ENDPOINT}.
+     */
+    public Builder setEndpoint(String endpoint) {
+      this.endpoint = endpoint;
+      return this;
+    }
+
+    public Builder setSessions(int sessions) {
+      this.sessions = sessions;
+      return this;
+    }
+
+    public Builder setDurationMillis(long durationMillis) {
+      this.durationMillis = durationMillis;
+      return this;
+    }
+
+    public Builder setWarmupMillis(long warmupMillis) {
+      this.warmupMillis = warmupMillis;
+      return this;
+    }
+
+    public Builder setMix(Map<ChromeLoadOperation, Integer> mix) {
+      this.mix = mix;
+      return this;
+    }
+
+    public Builder setUrl(String url) {
+      this.url = url;
+      return this;
+    }
+
+    public Builder setExpression(String expression) {
+      this.expression = expression;
+      return this;
+    }
+
+    public Builder setActionTimeoutMillis(long actionTimeoutMillis) {
+      this.actionTimeoutMillis = actionTimeoutMillis;
+      return this;
+    }
+
+    public Builder setOutput(Path output) {
+      this.output = output;
+      return this;
+    }
+
+    /**
+     * The rate the stand-in server sends events to each session at, going through a
+     * recorded `Network.requestWillBeSent`, `Network.responseReceived`,
+     * `Page.loadEventFired` and `Runtime.consoleAPICalled` in turn.
+     */
+    public Builder setEventsPerSecond(double eventsPerSecond) {
+      this.eventsPerSecond = eventsPerSecond;
+      return this;
+    }
+
+    public Builder setLatencyMillis(long latencyMillis) {
+      this.latencyMillis = latencyMillis;
+      return this;
+    }
+
+    public Builder setJitterMillis(long jitterMillis) {
+      this.jitterMillis = jitterMillis;
+      return this;
+    }
+
+    /**
+     * The size of the stand-in server's screenshots as sent, in base64, so a multiple
+     * of 4.
+     */
+    public Builder setScreenshotBytes(int screenshotBytes) {
+      this.screenshotBytes = screenshotBytes;
+      return this;
+    }
+
+    public ChromeLoadOptions build() {
+      if (!STAND_IN_ENDPOINT.equals(endpoint) && endpoint.lastIndexOf(':') < 1) {
+        throw new IllegalArgumentException(
+          "Expected " + STAND_IN_ENDPOINT + " or host:port but got " + endpoint
+        );
+      }
+      if (sessions < 1) {
+        throw new IllegalArgumentException("Need at least one session");
+      }
+      if (durationMillis <= 0 || warmupMillis < 0) {
+        throw new IllegalArgumentException("Need a positive duration");
+      }
+      if (screenshotBytes < 0 || screenshotBytes % 4 != 0) {
+        throw new IllegalArgumentException("Screenshot bytes must be a multiple of 4");
+      }
+      if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+        throw new IllegalArgumentException("Need at least one operation in the mix");
+      }
+      if (mix.values().stream().anyMatch(weight -> weight < 0)) {
+        throw new IllegalArgumentException("Operation weights can't be negative");
+      }
+      return new ChromeLoadOptions(this);
+    }
+  }
+}
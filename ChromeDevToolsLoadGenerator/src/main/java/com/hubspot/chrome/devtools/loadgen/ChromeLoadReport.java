@@ -0,0 +1,221 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link ChromeLoadGenerator} run measured: the throughput and latency
+ * percentiles of each protocol method, and the rate events arrived at, after warming up.
+ * {@link #toJson} is the machine-readable form, for comparing runs.
+ */
+public final class ChromeLoadReport {
+
+  private static final double[] PERCENTILES = { 50, 99, 99.9 };
+  private static final String[] PERCENTILE_NAMES = { "p50", "p99", "p999" };
+
+  private final ChromeLoadOptions options;
+  private final Map<String, ChromeLatencyHistogram> latencies;
+  private final Map<String, Long> errorCounts;
+  private final Map<String, Long> eventCounts;
+
+  ChromeLoadReport(
+    ChromeLoadOptions options,
+    Map<String, ChromeLatencyHistogram> latencies,
+    Map<String, Long> errorCounts,
+    Map<String, Long> eventCounts
+  ) {
+    this.options = options;
+    this.latencies = new TreeMap<>(latencies);
+    this.errorCounts = new TreeMap<>(errorCounts);
+    this.eventCounts = new TreeMap<>(eventCounts);
+  }
+
+  public ChromeLoadOptions getOptions() {
+    return options;
+  }
+
+  /**
+   * The protocol methods that were sent, whether or not any of them succeeded.
+   */
+  public Set<String> getMethods() {
+    Set<String> methods = new TreeSet<>(latencies.keySet());
+    methods.addAll(errorCounts.keySet());
+    return Collections.unmodifiableSet(methods);
+  }
+
+  /**
+   * The number of `method` commands that succeeded.
+   */
+  public long getCount(String method) {
+    ChromeLatencyHistogram histogram = latencies.get(method);
+    return histogram == null ? 0 : histogram.getCount();
+  }
+
+  /**
+   * The number of `method` commands that failed or timed out. Their latencies aren't
+   * included in the percentiles.
+   */
+  public long getErrorCount(String method) {
+    return errorCounts.getOrDefault(method, 0L);
+  }
+
+  public double getPerSecond(String method) {
+    return perSecond(getCount(method));
+  }
+
+  /**
+   * The latency, in milliseconds, that `percentile` percent of successful `method`
+   * commands completed within, e.g. 99.9.
+   */
+  public double getLatencyMillis(String method, double percentile) {
+    ChromeLatencyHistogram histogram = latencies.get(method);
+    return histogram == null ? 0 : toMillis(histogram.getPercentile(percentile));
+  }
+
+  public double getMaxLatencyMillis(String method) {
+    ChromeLatencyHistogram histogram = latencies.get(method);
+    return histogram == null ? 0 : toMillis(histogram.getMax());
+  }
+
+  public double getMeanLatencyMillis(String method) {
+    ChromeLatencyHistogram histogram = latencies.get(method);
+    return histogram == null ? 0 : toMillis(histogram.getMean());
+  }
+
+  /**
+   * The number of `method` events received, across all sessions.
+   */
+  public long getEventCount(String method) {
+    return eventCounts.getOrDefault(method, 0L);
+  }
+
+  public Set<String> getEventMethods() {
+    return Collections.unmodifiableSet(eventCounts.keySet());
+  }
+
+  public ObjectNode toJson(ObjectMapper objectMapper) {
+    ObjectNode report = objectMapper.createObjectNode();
+
+    ObjectNode config = report.putObject("config");
+    config.put("endpoint", options.getEndpoint());
+    config.put("sessions", options.getSessions());
+    config.put("durationSeconds", seconds(options.getDurationMillis()));
+    config.put("warmupSeconds", seconds(options.getWarmupMillis()));
+    ObjectNode mix = config.putObject("mix");
+    options
+      .getMix()
+      .forEach((operation, weight) -> mix.put(operation.getMethod(), weight));
+    config.put("url", options.getUrl());
+    config.put("expression", options.getExpression());
+    config.put("actionTimeoutMillis", options.getActionTimeoutMillis());
+    if (options.isStandIn()) {
+      config.put("eventsPerSecond", options.getEventsPerSecond());
+      config.put("latencyMillis", options.getLatencyMillis());
+      config.put("jitterMillis", options.getJitterMillis());
+      config.put("screenshotBytes", options.getScreenshotBytes());
+    }
+
+    ObjectNode methods = report.putObject("methods");
+    for (String method : getMethods()) {
+      ObjectNode stats = methods.putObject(method);
+      stats.put("count", getCount(method));
+      stats.put("errors", getErrorCount(method));
+      stats.put("perSecond", getPerSecond(method));
+      ObjectNode latencyMillis = stats.putObject("latencyMillis");
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        latencyMillis.put(PERCENTILE_NAMES[i], getLatencyMillis(method, PERCENTILES[i]));
+      }
+      latencyMillis.put("max", getMaxLatencyMillis(method));
+      latencyMillis.put("mean", getMeanLatencyMillis(method));
+    }
+
+    ObjectNode events = report.putObject("events");
+    for (String method : getEventMethods()) {
+      ObjectNode stats = events.putObject(method);
+      stats.put("count", getEventCount(method));
+      stats.put("perSecond", perSecond(getEventCount(method)));
+    }
+    return report;
+  }
+
+  /**
+   * A table of the report for reading in a terminal.
+   */
+  @Override
+  public String toString() {
+    StringBuilder table = new StringBuilder();
+    table.append(
+      String.format(
+        "%s sessions against %s for %ss%n%n",
+        options.getSessions(),
+        options.getEndpoint(),
+        seconds(options.getDurationMillis())
+      )
+    );
+    table.append(
+      String.format(
+        "%-28s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+        "method",
+        "count",
+        "errors",
+        "per sec",
+        "p50 ms",
+        "p99 ms",
+        "p999 ms",
+        "max ms",
+        "mean ms"
+      )
+    );
+    for (String method : getMethods()) {
+      table.append(
+        String.format(
+          "%-28s %10d %8d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+          method,
+          getCount(method),
+          getErrorCount(method),
+          getPerSecond(method),
+          getLatencyMillis(method, 50),
+          getLatencyMillis(method, 99),
+          getLatencyMillis(method, 99.9),
+          getMaxLatencyMillis(method),
+          getMeanLatencyMillis(method)
+        )
+      );
+    }
+    if (!eventCounts.isEmpty()) {
+      table.append(
+        String.format("%n%-28s %10s %8s %10s%n", "event", "count", "", "per sec")
+      );
+      for (String method : getEventMethods()) {
+        table.append(
+          String.format(
+            "%-28s %10d %8s %10.1f%n",
+            method,
+            getEventCount(method),
+            "",
+            perSecond(getEventCount(method))
+          )
+        );
+      }
+    }
+    return table.toString();
+  }
+
+  private double perSecond(long count) {
+    return count / seconds(options.getDurationMillis());
+  }
+
+  private static double seconds(long millis) {
+    return millis / 1000.0;
+  }
+
+  private static double toMillis(double micros) {
+    return micros / (double) TimeUnit.MILLISECONDS.toMicros(1);
+  }
+}
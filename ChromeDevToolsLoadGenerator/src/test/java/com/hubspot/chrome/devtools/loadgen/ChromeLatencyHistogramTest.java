@@ -0,0 +1,62 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class ChromeLatencyHistogramTest {
+
+  @Test
+  public void itReadsPercentilesBackWithinItsPrecision() {
+    ChromeLatencyHistogram histogram = new ChromeLatencyHistogram();
+    for (long value = 1; value <= 100_000; value++) {
+      histogram.record(value);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(100_000);
+    assertThat(histogram.getMax()).isEqualTo(100_000);
+    assertThat(histogram.getMean()).isEqualTo(50_000.5);
+    assertThat((double) histogram.getPercentile(50)).isCloseTo(50_000, within(800.0));
+    assertThat((double) histogram.getPercentile(99)).isCloseTo(99_000, within(1600.0));
+    assertThat((double) histogram.getPercentile(99.9)).isCloseTo(99_900, within(1600.0));
+    assertThat(histogram.getPercentile(100)).isEqualTo(100_000);
+  }
+
+  @Test
+  public void itKeepsSmallValuesExact() {
+    ChromeLatencyHistogram histogram = new ChromeLatencyHistogram();
+    histogram.record(3);
+    histogram.record(7);
+    histogram.record(120);
+
+    assertThat(histogram.getPercentile(0)).isEqualTo(3);
+    assertThat(histogram.getPercentile(50)).isEqualTo(7);
+    assertThat(histogram.getPercentile(99)).isEqualTo(120);
+  }
+
+  @Test
+  public void itMergesHistograms() {
+    ChromeLatencyHistogram first = new ChromeLatencyHistogram();
+    ChromeLatencyHistogram second = new ChromeLatencyHistogram();
+    first.record(10);
+    second.record(1_000_000);
+
+    first.add(second);
+
+    assertThat(first.getCount()).isEqualTo(2);
+    assertThat(first.getMax()).isEqualTo(1_000_000);
+    assertThat(first.getPercentile(50)).isEqualTo(10);
+  }
+
+  @Test
+  public void itCoversEveryLong() {
+    assertThat(ChromeLatencyHistogram.bucketOf(127)).isEqualTo(127);
+    assertThat(highestValueWith(128)).isEqualTo(129);
+    assertThat(highestValueWith(Long.MAX_VALUE)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  private static long highestValueWith(long value) {
+    return ChromeLatencyHistogram.highestValueIn(ChromeLatencyHistogram.bucketOf(value));
+  }
+}
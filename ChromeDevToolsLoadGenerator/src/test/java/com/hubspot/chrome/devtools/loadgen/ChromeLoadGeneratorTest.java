@@ -0,0 +1,65 @@
+package com.hubspot.chrome.devtools.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+public class ChromeLoadGeneratorTest {
+
+  @Test
+  public void itReportsEachMethodAndEventAgainstTheStandIn() throws Exception {
+    ChromeLoadOptions options = ChromeLoadOptions.parse(
+      "--sessions=4",
+      "--warmup-seconds=0.2",
+      "--duration-seconds=1",
+      "--mix=navigate=1,evaluate=4,screenshot=1",
+      "--events-per-second=200",
+      "--latency-millis=1",
+      "--screenshot-bytes=4096"
+    );
+
+    ChromeLoadReport report = new ChromeLoadGenerator(options).run();
+
+    assertThat(report.getMethods())
+      .containsExactly("Page.captureScreenshot", "Page.navigate", "Runtime.evaluate");
+    for (String method : report.getMethods()) {
+      assertThat(report.getCount(method)).isPositive();
+      assertThat(report.getErrorCount(method)).isZero();
+      assertThat(report.getLatencyMillis(method, 50))
+        .isGreaterThanOrEqualTo(1)
+        .isLessThanOrEqualTo(report.getLatencyMillis(method, 99));
+      assertThat(report.getLatencyMillis(method, 99))
+        .isLessThanOrEqualTo(report.getLatencyMillis(method, 99.9));
+      assertThat(report.getLatencyMillis(method, 99.9))
+        .isLessThanOrEqualTo(report.getMaxLatencyMillis(method));
+    }
+    assertThat(report.getCount("Runtime.evaluate"))
+      .isGreaterThan(report.getCount("Page.navigate"));
+    // Each session gets 200 a second, going through four types of event
+    assertThat(report.getEventCount("Page.loadEventFired")).isGreaterThan(50);
+
+    JsonNode json = report.toJson(new ObjectMapper());
+    JsonNode evaluate = json.path("methods").path("Runtime.evaluate");
+    assertThat(json.path("config").path("sessions").asInt()).isEqualTo(4);
+    assertThat(evaluate.path("count").asLong())
+      .isEqualTo(report.getCount("Runtime.evaluate"));
+    assertThat(evaluate.path("latencyMillis").has("p999")).isTrue();
+    assertThat(json.at("/events/Network.requestWillBeSent/perSecond").asDouble())
+      .isPositive();
+  }
+
+  @Test
+  public void itRejectsOptionsItDoesNotKnow() {
+    assertThatThrownBy(() -> ChromeLoadOptions.parse("--sesions=4"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unknown option --sesions");
+    assertThatThrownBy(() -> ChromeLoadOptions.parse("--mix=print=1"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unknown operation print");
+    assertThatThrownBy(() -> ChromeLoadOptions.parse("--endpoint=localhost"))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+}
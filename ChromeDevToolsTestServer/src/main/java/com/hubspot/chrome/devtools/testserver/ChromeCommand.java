@@ -0,0 +1,114 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import javax.annotation.Nullable;
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.CloseFrame;
+
+/**
+ * A command received by a {@link ChromeTestServer}, for a {@link ChromeReply} to answer.
+ */
+public final class ChromeCommand {
+
+  private final int id;
+  private final String method;
+  private final String sessionId;
+  private final JsonNode params;
+  private final WebSocket connection;
+
+  ChromeCommand(
+    int id,
+    String method,
+    @Nullable String sessionId,
+    JsonNode params,
+    WebSocket connection
+  ) {
+    this.id = id;
+    this.method = method;
+    this.sessionId = sessionId;
+    this.params = params;
+    this.connection = connection;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  /**
+   * The flat-mode session the command was sent to, or null for the target the websocket
+   * is connected to. Replies are sent back to the same session.
+   */
+  @Nullable
+  public String getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * The command's params, or an empty object if it was sent without any.
+   */
+  public JsonNode getParams() {
+    return params;
+  }
+
+  /**
+   * A response to this command with `result` as its result, which must be a JSON object.
+   */
+  public String result(String result) {
+    return resultFrame(id, sessionId, result);
+  }
+
+  /**
+   * An error response to this command, as chrome sends for a failed command.
+   */
+  public String error(int code, String message) {
+    return frame(
+      id,
+      sessionId,
+      "error",
+      String.format("{\"code\":%s,\"message\":\"%s\"}", code, quote(message))
+    );
+  }
+
+  /**
+   * Drops the connection the command arrived on without a closing handshake, as when
+   * chrome crashes.
+   */
+  public void disconnect() {
+    connection.closeConnection(
+      CloseFrame.ABNORMAL_CLOSE,
+      "Disconnected instead of replying to " + id
+    );
+  }
+
+  WebSocket getConnection() {
+    return connection;
+  }
+
+  static String resultFrame(int id, @Nullable String sessionId, String result) {
+    return frame(id, sessionId, "result", result);
+  }
+
+  private static String frame(
+    int id,
+    @Nullable String sessionId,
+    String field,
+    String value
+  ) {
+    StringBuilder frame = new StringBuilder(value.length() + 64);
+    frame.append("{\"id\":").append(id).append(",\"").append(field).append("\":");
+    frame.append(value);
+    if (sessionId != null) {
+      frame.append(",\"sessionId\":\"").append(quote(sessionId)).append('"');
+    }
+    return frame.append('}').toString();
+  }
+
+  private static String quote(String value) {
+    return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+  }
+}
@@ -0,0 +1,91 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Events being sent by a {@link ChromeTestServer} at a steady rate, to every connection
+ * it has open when each is due. See {@link ChromeTestServer#streamEvents}.
+ */
+public final class ChromeEventStream {
+
+  private final List<String> frames;
+  private final double eventsPerNano;
+  private final long count;
+  private final Consumer<String> sender;
+  private final long startNanos;
+  private volatile long sentCount;
+  private volatile ScheduledFuture<?> task;
+
+  ChromeEventStream(
+    List<String> frames,
+    double eventsPerSecond,
+    long count,
+    Consumer<String> sender
+  ) {
+    if (frames.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one event to stream");
+    }
+    if (eventsPerSecond <= 0) {
+      throw new IllegalArgumentException(
+        "eventsPerSecond must be positive, got " + eventsPerSecond
+      );
+    }
+    this.frames = frames;
+    this.eventsPerNano = eventsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.count = count;
+    this.sender = sender;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * How often to send, in nanos: once per event for slow streams, or every millisecond
+   * for faster ones, each time sending however many events have fallen due.
+   */
+  long getPeriodNanos() {
+    return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (1 / eventsPerNano));
+  }
+
+  void setTask(ScheduledFuture<?> task) {
+    this.task = task;
+  }
+
+  // Only ever run by the server's scheduler thread, one tick at a time
+  void tick() {
+    long due = Math.min(count, (long) ((System.nanoTime() - startNanos) * eventsPerNano));
+    long sent = sentCount;
+    while (sent < due) {
+      String frame = frames.get((int) (sent % frames.size()));
+      // Counted first, so whoever has received an event also sees it counted
+      sentCount = ++sent;
+      sender.accept(frame);
+    }
+    if (sent >= count) {
+      stop();
+    }
+  }
+
+  /**
+   * Stops sending; events already sent are unaffected.
+   */
+  public void stop() {
+    ScheduledFuture<?> task = this.task;
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Whether every event has been sent, or the stream was stopped.
+   */
+  public boolean isDone() {
+    ScheduledFuture<?> task = this.task;
+    return task != null && task.isDone();
+  }
+
+  public long getSentCount() {
+    return sentCount;
+  }
+}
@@ -0,0 +1,61 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames recorded from chrome, one per protocol method. Events are kept as chrome sent
+ * them. Responses are kept with an id of 0, and are given the id of the command they
+ * answer when replayed.
+ *
+ * Recordings exist for `DOM.getDocument`, `DOM.querySelector`, `Page.navigate` and
+ * `Runtime.evaluate` responses, and for `Network.requestWillBeSent`,
+ * `Network.responseReceived`, `Page.loadEventFired` and `Runtime.consoleAPICalled`
+ * events.
+ */
+public final class ChromeRecordings {
+
+  private static final String RESPONSE_PREFIX = "{\"id\":0,\"result\":";
+
+  private ChromeRecordings() {}
+
+  /**
+   * The frame recorded for `method`, exactly as chrome sent it.
+   */
+  public static String load(String method) {
+    try {
+      return Resources
+        .toString(
+          Resources.getResource(ChromeRecordings.class, "frames/" + method + ".json"),
+          StandardCharsets.UTF_8
+        )
+        .trim();
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("There is no recording of " + method, e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The `result` of the response recorded for `method`.
+   */
+  public static String loadResult(String method) {
+    String frame = load(method);
+    if (!frame.startsWith(RESPONSE_PREFIX)) {
+      throw new IllegalArgumentException(
+        String.format("The recording of %s is not a response: %s", method, frame)
+      );
+    }
+    return frame.substring(RESPONSE_PREFIX.length(), frame.length() - 1);
+  }
+
+  /**
+   * The response recorded for `method`, as the reply to command `id`.
+   */
+  public static String loadResponse(String method, int id) {
+    return ChromeCommand.resultFrame(id, null, loadResult(method));
+  }
+}
@@ -0,0 +1,60 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import com.google.common.base.Strings;
+import javax.annotation.Nullable;
+
+/**
+ * How a {@link ChromeTestServer} answers a command.
+ */
+@FunctionalInterface
+public interface ChromeReply {
+  /**
+   * The frame to send back for `command`, or null to send nothing.
+   */
+  @Nullable
+  String replyTo(ChromeCommand command);
+
+  /**
+   * Responds with `result`, a JSON object.
+   */
+  static ChromeReply result(String result) {
+    return command -> command.result(result);
+  }
+
+  /**
+   * Responds with the result chrome was recorded sending for `method`. See
+   * {@link ChromeRecordings}.
+   */
+  static ChromeReply recorded(String method) {
+    return result(ChromeRecordings.loadResult(method));
+  }
+
+  static ChromeReply error(int code, String message) {
+    return command -> command.error(code, message);
+  }
+
+  /**
+   * Responds with a result of about `bytes` bytes, `{"data":"AAAA..."}`, shaped like a
+   * screenshot or a PDF.
+   */
+  static ChromeReply payloadOfSize(int bytes) {
+    return result(String.format("{\"data\":\"%s\"}", Strings.repeat("A", bytes)));
+  }
+
+  /**
+   * Never responds, so the command times out.
+   */
+  static ChromeReply none() {
+    return command -> null;
+  }
+
+  /**
+   * Drops the connection instead of responding.
+   */
+  static ChromeReply disconnect() {
+    return command -> {
+      command.disconnect();
+      return null;
+    };
+  }
+}
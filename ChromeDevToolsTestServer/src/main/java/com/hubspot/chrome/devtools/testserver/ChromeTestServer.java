@@ -0,0 +1,371 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.java_websocket.WebSocket;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stands in for chrome's DevTools websocket, for testing clients without a browser. It
+ * answers commands with scripted or recorded replies, streams events at a set rate, and
+ * can slow replies down, make them huge, fragment them, or drop connections:
+ *
+ *    try (ChromeTestServer server = new ChromeTestServer()) {
+ *      server
+ *        .respondTo("Page.navigate", ChromeReply.recorded("Page.navigate"))
+ *        .respondTo("Page.captureScreenshot", ChromeReply.payloadOfSize(8 << 20))
+ *        .setLatency(5, 20);
+ *      URI uri = server.start();
+ *      server.streamEvents(
+ *        Collections.singletonList(ChromeRecordings.load("Network.requestWillBeSent")),
+ *        1000
+ *      );
+ *      ...
+ *    }
+ *
+ * Commands without a reply get the error chrome sends for unknown methods.
+ */
+public class ChromeTestServer implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChromeTestServer.class);
+
+  private static final int METHOD_NOT_FOUND = -32601;
+  private static final Latency NO_LATENCY = new Latency(0, 0);
+
+  private final Endpoint endpoint;
+  private final ObjectMapper objectMapper;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, ChromeReply> replies;
+  private final Map<String, Latency> methodLatencies;
+  private final Map<String, LongAdder> commandCounts;
+  private volatile Latency latency;
+  private volatile int fragmentSize;
+
+  /**
+   * A server on an ephemeral loopback port.
+   */
+  public ChromeTestServer() {
+    this(new InetSocketAddress("127.0.0.1", 0));
+  }
+
+  public ChromeTestServer(InetSocketAddress address) {
+    this.endpoint = new Endpoint(address);
+    this.objectMapper = new ObjectMapper();
+    this.scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+          .setNameFormat("chrome-test-server-scheduler")
+          .setDaemon(true)
+          .build()
+      );
+    this.replies = new ConcurrentHashMap<>();
+    this.methodLatencies = new ConcurrentHashMap<>();
+    this.commandCounts = new ConcurrentHashMap<>();
+    this.latency = NO_LATENCY;
+  }
+
+  /**
+   * Starts listening, and returns the websocket URI to connect to once it is.
+   */
+  public URI start() throws InterruptedException {
+    endpoint.start();
+    endpoint.started.await();
+    if (endpoint.startFailure != null) {
+      throw new IllegalStateException("Could not start", endpoint.startFailure);
+    }
+    return getUri();
+  }
+
+  public URI getUri() {
+    return URI.create(
+      String.format(
+        "ws://%s:%s/devtools/browser/test",
+        endpoint.getAddress().getHostString(),
+        endpoint.getPort()
+      )
+    );
+  }
+
+  /**
+   * Answers every `method` command with `reply`, until it is replaced.
+   */
+  public ChromeTestServer respondTo(String method, ChromeReply reply) {
+    replies.put(method, reply);
+    return this;
+  }
+
+  /**
+   * Answers every `method` command with `result`, a JSON object.
+   */
+  public ChromeTestServer respondTo(String method, String result) {
+    return respondTo(method, ChromeReply.result(result));
+  }
+
+  /**
+   * Answers each of `methods` with the response chrome was recorded sending for it.
+   */
+  public ChromeTestServer respondFromRecordings(String... methods) {
+    for (String method : methods) {
+      respondTo(method, ChromeReply.recorded(method));
+    }
+    return this;
+  }
+
+  /**
+   * Delays every reply by `latencyMillis`, plus up to `jitterMillis` more chosen at
+   * random for each one, so replies can arrive in a different order than the commands
+   * were sent.
+   */
+  public ChromeTestServer setLatency(long latencyMillis, long jitterMillis) {
+    this.latency = new Latency(latencyMillis, jitterMillis);
+    return this;
+  }
+
+  /**
+   * Like {@link #setLatency(long, long)}, for `method` commands only.
+   */
+  public ChromeTestServer setLatency(
+    String method,
+    long latencyMillis,
+    long jitterMillis
+  ) {
+    methodLatencies.put(method, new Latency(latencyMillis, jitterMillis));
+    return this;
+  }
+
+  /**
+   * Splits every frame longer than `fragmentSize` bytes into continuation frames, or
+   * sends every frame whole if it is 0, as chrome does.
+   */
+  public ChromeTestServer setFragmentSize(int fragmentSize) {
+    this.fragmentSize = fragmentSize;
+    return this;
+  }
+
+  /**
+   * Sends `frames`, in turn and over and over, at `eventsPerSecond` until stopped.
+   */
+  public ChromeEventStream streamEvents(List<String> frames, double eventsPerSecond) {
+    return streamEvents(frames, eventsPerSecond, Long.MAX_VALUE);
+  }
+
+  /**
+   * Sends `count` events, going through `frames` in turn, at `eventsPerSecond`.
+   */
+  public ChromeEventStream streamEvents(
+    List<String> frames,
+    double eventsPerSecond,
+    long count
+  ) {
+    ChromeEventStream stream = new ChromeEventStream(
+      frames,
+      eventsPerSecond,
+      count,
+      this::sendEvent
+    );
+    stream.setTask(
+      scheduler.scheduleAtFixedRate(
+        stream::tick,
+        0,
+        stream.getPeriodNanos(),
+        TimeUnit.NANOSECONDS
+      )
+    );
+    return stream;
+  }
+
+  /**
+   * Sends `frame` to every open connection.
+   */
+  public void sendEvent(String frame) {
+    if (fragmentSize > 0) {
+      for (WebSocket connection : endpoint.getConnections()) {
+        send(connection, frame);
+      }
+    } else {
+      endpoint.broadcast(frame);
+    }
+  }
+
+  /**
+   * Drops every connection without a closing handshake, as when chrome crashes.
+   */
+  public void disconnectAll() {
+    for (WebSocket connection : endpoint.getConnections()) {
+      connection.closeConnection(CloseFrame.ABNORMAL_CLOSE, "Disconnected");
+    }
+  }
+
+  public int getConnectionCount() {
+    return endpoint.getConnections().size();
+  }
+
+  /**
+   * The number of `method` commands received.
+   */
+  public long getCommandCount(String method) {
+    LongAdder count = commandCounts.get(method);
+    return count == null ? 0 : count.sum();
+  }
+
+  /**
+   * The number of commands received, of any method.
+   */
+  public long getCommandCount() {
+    return commandCounts.values().stream().mapToLong(LongAdder::sum).sum();
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    scheduler.shutdownNow();
+    endpoint.stop(1000);
+  }
+
+  private void handle(WebSocket connection, String message) {
+    ChromeCommand command;
+    try {
+      JsonNode request = objectMapper.readTree(message);
+      command =
+        new ChromeCommand(
+          request.path("id").asInt(),
+          request.path("method").asText(),
+          request.hasNonNull("sessionId") ? request.get("sessionId").asText() : null,
+          request.hasNonNull("params")
+            ? request.get("params")
+            : objectMapper.createObjectNode(),
+          connection
+        );
+    } catch (IOException e) {
+      LOG.warn("Ignoring a command that isn't JSON: {}", message, e);
+      return;
+    }
+    commandCounts
+      .computeIfAbsent(command.getMethod(), ignored -> new LongAdder())
+      .increment();
+
+    long delayMillis = methodLatencies
+      .getOrDefault(command.getMethod(), latency)
+      .nextDelayMillis();
+    if (delayMillis > 0) {
+      scheduler.schedule(() -> reply(command), delayMillis, TimeUnit.MILLISECONDS);
+    } else {
+      reply(command);
+    }
+  }
+
+  private void reply(ChromeCommand command) {
+    ChromeReply reply = replies.get(command.getMethod());
+    String frame = reply == null
+      ? command.error(
+        METHOD_NOT_FOUND,
+        String.format("'%s' wasn't found", command.getMethod())
+      )
+      : reply.replyTo(command);
+    if (frame != null && command.getConnection().isOpen()) {
+      send(command.getConnection(), frame);
+    }
+  }
+
+  private void send(WebSocket connection, String frame) {
+    int fragmentSize = this.fragmentSize;
+    if (fragmentSize <= 0) {
+      connection.send(frame);
+      return;
+    }
+    byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+    // No other message may go out between the fragments of this one
+    synchronized (connection) {
+      for (int offset = 0; offset < bytes.length; offset += fragmentSize) {
+        int end = Math.min(bytes.length, offset + fragmentSize);
+        connection.sendFragmentedFrame(
+          Opcode.TEXT,
+          ByteBuffer.wrap(Arrays.copyOfRange(bytes, offset, end)),
+          end == bytes.length
+        );
+      }
+    }
+  }
+
+  private static final class Latency {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+
+    private Latency(long latencyMillis, long jitterMillis) {
+      this.latencyMillis = latencyMillis;
+      this.jitterMillis = jitterMillis;
+    }
+
+    private long nextDelayMillis() {
+      return jitterMillis <= 0
+        ? latencyMillis
+        : latencyMillis + ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+    }
+  }
+
+  private final class Endpoint extends WebSocketServer {
+
+    private final CountDownLatch started;
+    private volatile Exception startFailure;
+
+    private Endpoint(InetSocketAddress address) {
+      super(address);
+      this.started = new CountDownLatch(1);
+      setReuseAddr(true);
+      setTcpNoDelay(true);
+    }
+
+    @Override
+    public void onStart() {
+      started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket connection, ClientHandshake handshake) {
+      LOG.debug("Accepted {}", connection.getRemoteSocketAddress());
+    }
+
+    @Override
+    public void onClose(WebSocket connection, int code, String reason, boolean remote) {
+      LOG.debug("Closed {} ({}: {})", connection.getRemoteSocketAddress(), code, reason);
+    }
+
+    @Override
+    public void onMessage(WebSocket connection, String message) {
+      handle(connection, message);
+    }
+
+    @Override
+    public void onError(@Nullable WebSocket connection, Exception ex) {
+      if (connection == null) {
+        // The server itself failed, e.g. it couldn't bind
+        startFailure = ex;
+        started.countDown();
+      } else {
+        LOG.debug("Error on {}", connection.getRemoteSocketAddress(), ex);
+      }
+    }
+  }
+}
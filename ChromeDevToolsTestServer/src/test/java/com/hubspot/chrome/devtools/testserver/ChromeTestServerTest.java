@@ -0,0 +1,132 @@
+package com.hubspot.chrome.devtools.testserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hubspot.chrome.devtools.client.ChromeDevToolsClientDefaults;
+import com.hubspot.chrome.devtools.client.ChromeDevToolsSession;
+import com.hubspot.chrome.devtools.client.core.EventType;
+import com.hubspot.chrome.devtools.client.core.dom.NodeId;
+import com.hubspot.chrome.devtools.client.core.page.LoadEventFiredEvent;
+import com.hubspot.chrome.devtools.client.exceptions.ChromeDevToolsException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChromeTestServerTest {
+
+  private ChromeTestServer server;
+  private ChromeDevToolsSession session;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ChromeTestServer();
+    session =
+      new ChromeDevToolsSession(
+        server.start(),
+        ChromeDevToolsClientDefaults.DEFAULT_OBJECT_MAPPER,
+        ChromeDevToolsClientDefaults.DEFAULT_EXECUTOR_SERVICE,
+        1000L
+      );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    session.close();
+    server.close();
+  }
+
+  @Test
+  public void itAnswersWithRecordedAndScriptedReplies() {
+    server
+      .respondFromRecordings("Page.navigate")
+      .respondTo("DOM.querySelector", "{\"nodeId\":12}");
+
+    assertThat(session.navigate("https://www.hubspot.com/").loaderId.getValue())
+      .isEqualTo("A6F5E3DB9B0F7E5C2A38C5DEB54F7C43");
+    assertThat(session.getDOM().querySelector(new NodeId(1), "a").getValue())
+      .isEqualTo(12);
+    assertThat(server.getCommandCount("Page.navigate")).isEqualTo(1);
+    assertThat(server.getCommandCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void itFailsCommandsItHasNoReplyFor() {
+    assertThatThrownBy(() -> session.getPage().bringToFront())
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessage("'Page.bringToFront' wasn't found");
+  }
+
+  @Test
+  public void itDelaysReplies() {
+    server.respondTo("Page.bringToFront", "{}").setLatency("Page.bringToFront", 100, 20);
+
+    long start = System.nanoTime();
+    session.getPage().bringToFront();
+
+    assertThat(System.nanoTime() - start)
+      .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  public void itSendsHugeRepliesInFragments() throws Exception {
+    server
+      .respondTo("Page.captureScreenshot", ChromeReply.payloadOfSize(4 << 20))
+      .setFragmentSize(64 << 10);
+
+    assertThat(session.getPage().captureScreenshotAsync().get(5, TimeUnit.SECONDS))
+      .hasSize(4 << 20);
+  }
+
+  @Test
+  public void itStreamsEventsAtTheGivenRate() throws Exception {
+    CountDownLatch received = new CountDownLatch(50);
+    session.addEventConsumer(
+      EventType.PAGE_LOAD_EVENT_FIRED,
+      (LoadEventFiredEvent event) -> received.countDown()
+    );
+    awaitConnection();
+
+    long start = System.nanoTime();
+    ChromeEventStream stream = server.streamEvents(
+      Collections.singletonList(ChromeRecordings.load("Page.loadEventFired")),
+      500,
+      50
+    );
+
+    assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(System.nanoTime() - start)
+      .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+    assertThat(stream.getSentCount()).isEqualTo(50);
+  }
+
+  @Test
+  public void itDropsTheConnectionInsteadOfReplying() {
+    server.respondTo("Page.bringToFront", ChromeReply.disconnect());
+
+    assertThatThrownBy(() -> session.getPage().bringToFront())
+      .isInstanceOf(ChromeDevToolsException.class)
+      .hasMessage("Websocket is not connected");
+    assertThat(session.isConnected()).isFalse();
+  }
+
+  @Test
+  public void itLetsCommandsTimeOut() {
+    server.respondTo("Page.bringToFront", ChromeReply.none());
+
+    assertThatThrownBy(() -> session.getPage().bringToFront())
+      .isInstanceOf(ChromeDevToolsException.class);
+    assertThat(server.getCommandCount("Page.bringToFront")).isEqualTo(1);
+  }
+
+  // The client can see the connection open a moment before the server does
+  private void awaitConnection() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (server.getConnectionCount() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+}
@@ -6,19 +6,27 @@ import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.hubspot.chrome.devtools.base.ChromeMultiValueResult;
 import com.hubspot.chrome.devtools.base.ChromeRequest;
 import com.hubspot.chrome.devtools.base.ChromeSessionCore;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.MethodSpec.Builder;
@@ -38,6 +46,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.lang.model.element.Modifier;
 
 public class Generator {
@@ -47,6 +56,23 @@ public class Generator {
 
   private static final ObjectMapper OBJECT_MAPPER = newObjectMapper();
 
+  // Every domain's types by qualified name, e.g. "DOM.NodeId", for writing command
+  // arguments of those types without going through Jackson
+  private final Map<String, Type> typesByRef;
+
+  public Generator() {
+    this(Collections.emptyList());
+  }
+
+  Generator(List<Domain> domains) {
+    this.typesByRef = new HashMap<>();
+    for (Domain domain : domains) {
+      for (Type type : domain.getTypes()) {
+        typesByRef.put(domain.getName() + "." + type.getName(), type);
+      }
+    }
+  }
+
   private static ObjectMapper newObjectMapper() {
     ObjectMapper mapper = new ObjectMapper();
 
@@ -84,7 +110,7 @@ public class Generator {
   }
 
   private static void generateProtocol(Path path, List<Domain> domains) {
-    Generator generator = new Generator();
+    Generator generator = new Generator(domains);
 
     Map<Domain, List<TypeSpec>> pojos = new HashMap<>();
     for (Domain domain : domains) {
@@ -95,7 +121,7 @@ public class Generator {
     }
 
     generator.generateEventBase(path);
-    generator.generateEventDeserializer(pojos, path);
+    generator.generateEventDeserializer(path);
     generator.generateEventTypeEnum(pojos, path);
   }
 
@@ -179,41 +205,66 @@ public class Generator {
     return s;
   }
 
-  private void generateEventDeserializer(
-    Map<Domain, List<TypeSpec>> pojos,
-    Path packageRoot
-  ) {
+  private void generateEventDeserializer(Path packageRoot) {
     TypeName abstractEvent = getTypeName("Event", GENERATED_CODE_PACKAGE_NAME);
+    TypeName eventType = getTypeName("EventType", GENERATED_CODE_PACKAGE_NAME);
     TypeName superClass = ParameterizedTypeName.get(
       ClassName.get(StdDeserializer.class),
       abstractEvent
     );
+    TypeName eventTypesType = ParameterizedTypeName.get(
+      ClassName.get(Map.class),
+      ClassName.get(String.class),
+      ClassName.get(JavaType.class)
+    );
 
     TypeSpec.Builder builder = TypeSpec
       .classBuilder("EventDeserializer")
+      .addJavadoc(
+        "Binds `{\"method\":..,\"params\":{..}}` frames to the generated class\n" +
+        "of the event, reading `params` straight from the parser with the\n" +
+        "configuration of the mapper doing the reading. The types are resolved once,\n" +
+        "by exact method name.\n"
+      )
       .superclass(superClass)
-      .addField(ObjectMapper.class, "objectMapper", Modifier.PRIVATE, Modifier.FINAL)
       .addModifiers(Modifier.PUBLIC)
+      .addField(
+        FieldSpec
+          .builder(
+            eventTypesType,
+            "EVENT_TYPES",
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL
+          )
+          .initializer("eventTypes()")
+          .build()
+      )
       .addMethod(
         MethodSpec
           .constructorBuilder()
           .addModifiers(Modifier.PUBLIC)
           .addStatement("super($T.class)", abstractEvent)
-          .addStatement("this.objectMapper = new ObjectMapper()")
-          .addStatement(
-            "this.objectMapper.configure($T.$N, false);",
-            DeserializationFeature.class,
-            "FAIL_ON_UNKNOWN_PROPERTIES"
-          )
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("eventTypes")
+          .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+          .returns(eventTypesType)
+          .addStatement("$T eventTypes = new $T<>()", eventTypesType, HashMap.class)
+          .beginControlFlow("for ($T eventType : $T.values())", eventType, eventType)
           .addStatement(
-            "this.objectMapper.configure($T.$N, false);",
-            DeserializationFeature.class,
-            "FAIL_ON_INVALID_SUBTYPE"
+            "eventTypes.put(eventType.getType(), " +
+            "$T.defaultInstance().constructType(eventType.getClazz()))",
+            TypeFactory.class
           )
+          .endControlFlow()
+          .addStatement("return eventTypes")
           .build()
       );
 
-    MethodSpec.Builder deserializationBuilder = MethodSpec
+    MethodSpec deserialize = MethodSpec
       .methodBuilder("deserialize")
       .addAnnotation(Override.class)
       .addModifiers(Modifier.PUBLIC)
@@ -222,54 +273,151 @@ public class Generator {
       .addParameter(DeserializationContext.class, "context")
       .addException(IOException.class)
       .addException(JsonProcessingException.class)
-      .addStatement("$T node = p.readValueAsTree()", JsonNode.class)
-      .addStatement("$T field = node.findValue(\"method\")", JsonNode.class)
-      .addStatement("String method = field.asText()")
-      .beginControlFlow("switch (method)");
+      .beginControlFlow("if (p.currentToken() != $T.START_OBJECT)", JsonToken.class)
+      .addStatement(
+        "throw new $T(\"Expected a JSON object but got \" + p.currentToken())",
+        IOException.class
+      )
+      .endControlFlow()
+      .addStatement("String method = null")
+      .addStatement("$T event = null", abstractEvent)
+      .addStatement("$T bufferedParams = null", TokenBuffer.class)
+      .beginControlFlow(
+        "for (String field = p.nextFieldName(); field != null; field = p.nextFieldName())"
+      )
+      .addStatement("p.nextToken()")
+      .beginControlFlow("if (field.equals($S))", "method")
+      .addStatement("method = p.getText()")
+      .nextControlFlow("else if (field.equals($S) && method != null)", "params")
+      .addStatement("event = readParams(method, p, context)")
+      .nextControlFlow("else if (field.equals($S))", "params")
+      .addComment("Only if `method` comes after `params`, which chrome doesn't do")
+      .addStatement("bufferedParams = new $T(p, context)", TokenBuffer.class)
+      .addStatement("bufferedParams.copyCurrentStructure(p)")
+      .nextControlFlow("else")
+      .addStatement("p.skipChildren()")
+      .endControlFlow()
+      .endControlFlow()
+      .beginControlFlow("if (bufferedParams != null && method != null)")
+      .beginControlFlow(
+        "try ($T paramsParser = bufferedParams.asParserOnFirstToken())",
+        JsonParser.class
+      )
+      .addStatement("event = readParams(method, paramsParser, context)")
+      .endControlFlow()
+      .endControlFlow()
+      .beginControlFlow("if (event == null)")
+      .addStatement(
+        "throw new $T(\"Unable to deserialize event \" + method)",
+        IOException.class
+      )
+      .endControlFlow()
+      .addStatement("return event")
+      .build();
 
-    for (Entry<Domain, List<TypeSpec>> entry : pojos.entrySet()) {
-      Domain domain = entry.getKey();
-      for (TypeSpec typeSpec : entry.getValue()) {
-        if (typeSpec.name.contains("responseReceivedExtraInfo")) {
-          deserializationBuilder
-            .addCode(
-              "case $S: ",
-              domain.getName() +
-              "." +
-              uncapitalize(replaceAtEnd(typeSpec.name, "Event", ""))
-            )
-            .addCode("{\n$>")
-            .addStatement("((ObjectNode) p).remove(\"cookiePartitionKey\")")
-            .addStatement(
-              "return objectMapper.readValue(node.findValue(\"params\").toString(), $T.class)",
-              getTypeName(typeSpec.name, getPackageName(domain))
-            )
-            .addCode("$<}\n");
-        } else {
-          deserializationBuilder
-            .addCode(
-              "case $S: ",
-              domain.getName() +
-              "." +
-              uncapitalize(replaceAtEnd(typeSpec.name, "Event", ""))
-            )
-            .addCode("{\n$>")
-            .addStatement(
-              "return objectMapper.readValue(node.findValue(\"params\").toString(), $T.class)",
-              getTypeName(typeSpec.name, getPackageName(domain))
-            )
-            .addCode("$<}\n");
-        }
-      }
-    }
+    ClassName lenientReaders = ClassName.get(
+      GENERATED_CODE_PACKAGE_NAME,
+      "EventDeserializer",
+      "LenientReaders"
+    );
+    builder.addField(lenientReaders, "readers", Modifier.PRIVATE, Modifier.VOLATILE);
+
+    MethodSpec readParams = MethodSpec
+      .methodBuilder("readParams")
+      .addModifiers(Modifier.PRIVATE)
+      .returns(abstractEvent)
+      .addParameter(String.class, "method")
+      .addParameter(JsonParser.class, "p")
+      .addParameter(DeserializationContext.class, "context")
+      .addException(IOException.class)
+      .addStatement("$T type = EVENT_TYPES.get(method)", JavaType.class)
+      .beginControlFlow("if (type == null)")
+      .addStatement("p.skipChildren()")
+      .addStatement("return null")
+      .endControlFlow()
+      .addStatement("$T codec = p.getCodec()", ObjectCodec.class)
+      .beginControlFlow(
+        "if (!(codec instanceof $T) && !(codec instanceof $T))",
+        ObjectMapper.class,
+        ObjectReader.class
+      )
+      .addStatement("return context.readValue(p, type)")
+      .endControlFlow()
+      .addStatement("$T current = readers", lenientReaders)
+      .beginControlFlow("if (current == null || current.codec != codec)")
+      .addStatement("current = new $T(codec)", lenientReaders)
+      .addStatement("readers = current")
+      .endControlFlow()
+      .addStatement("return current.get(method, type).readValue(p)")
+      .build();
 
-    deserializationBuilder.endControlFlow();
-    deserializationBuilder.addStatement(
-      "throw new $T(\"Unable to deserialize \" + node.toString())",
-      IOException.class
+    TypeName readersType = ParameterizedTypeName.get(
+      ClassName.get(Map.class),
+      ClassName.get(String.class),
+      ClassName.get(ObjectReader.class)
     );
+    TypeSpec lenientReadersType = TypeSpec
+      .classBuilder(lenientReaders)
+      .addJavadoc(
+        "Chrome adds to its events all the time, so they're read without failing on\n" +
+        "properties or subtypes they don't know, whatever the mapper's own settings.\n" +
+        "A reader is made once per event type, for the mapper that last read events.\n"
+      )
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+      .addField(ObjectCodec.class, "codec", Modifier.PRIVATE, Modifier.FINAL)
+      .addField(
+        FieldSpec
+          .builder(readersType, "readers", Modifier.PRIVATE, Modifier.FINAL)
+          .initializer("new $T<>()", ConcurrentHashMap.class)
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .constructorBuilder()
+          .addModifiers(Modifier.PRIVATE)
+          .addParameter(ObjectCodec.class, "codec")
+          .addStatement("this.codec = codec")
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("get")
+          .addModifiers(Modifier.PRIVATE)
+          .returns(ObjectReader.class)
+          .addParameter(String.class, "method")
+          .addParameter(JavaType.class, "type")
+          .addStatement("$T reader = readers.get(method)", ObjectReader.class)
+          .beginControlFlow("if (reader == null)")
+          .addStatement(
+            "reader = readers.computeIfAbsent(method, ignored -> newReader(type))"
+          )
+          .endControlFlow()
+          .addStatement("return reader")
+          .build()
+      )
+      .addMethod(
+        MethodSpec
+          .methodBuilder("newReader")
+          .addModifiers(Modifier.PRIVATE)
+          .returns(ObjectReader.class)
+          .addParameter(JavaType.class, "type")
+          .addStatement(
+            "$1T reader = codec instanceof $2T ? (($2T) codec).readerFor(type) : " +
+            "(($1T) codec).forType(type)",
+            ObjectReader.class,
+            ObjectMapper.class
+          )
+          .addComment("Events are read mid-frame, so what follows them isn't trailing")
+          .addStatement(
+            "return reader.without($1T.FAIL_ON_UNKNOWN_PROPERTIES, " +
+            "$1T.FAIL_ON_INVALID_SUBTYPE, $1T.FAIL_ON_TRAILING_TOKENS)",
+            DeserializationFeature.class
+          )
+          .build()
+      )
+      .build();
 
-    builder.addMethod(deserializationBuilder.build());
+    builder.addMethod(deserialize).addMethod(readParams).addType(lenientReadersType);
 
     writeJavaFile(packageRoot, GENERATED_CODE_PACKAGE_NAME, builder.build());
   }
@@ -568,8 +716,8 @@ public class Generator {
     TypeSpec.Builder builder = TypeSpec
       .classBuilder(domain.getName())
       .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-      .addField(chromeSessionType, chromeSessionVar)
-      .addField(objectMapperType, objectMapperVar)
+      .addField(chromeSessionType, chromeSessionVar, Modifier.FINAL)
+      .addField(objectMapperType, objectMapperVar, Modifier.FINAL)
       .addMethod(
         MethodSpec
           .constructorBuilder()
@@ -589,26 +737,17 @@ public class Generator {
       if (returnTypeSpec.isPresent()) {
         specs.add(returnTypeSpec.get());
       }
+      if (!command.getParameters().orElse(Collections.emptyList()).isEmpty()) {
+        builder.addType(generateRequestTypeSpec(command, domain));
+      }
+      Optional<TypeName> resultType = getResultTypeName(command, domain);
+      if (resultType.isPresent()) {
+        builder.addField(generateResultTypeField(command, resultType.get()));
+      }
 
       // Generate full method call with all args
-      builder.addMethod(
-        generateMethodSpec(
-          command,
-          domain,
-          Optional.of(domain.getName() + "." + getResultClassName(command)),
-          false,
-          0
-        )
-      );
-      builder.addMethod(
-        generateMethodSpec(
-          command,
-          domain,
-          Optional.of(domain.getName() + "." + getResultClassName(command)),
-          true,
-          0
-        )
-      );
+      builder.addMethod(generateMethodSpec(command, domain, false, 0));
+      builder.addMethod(generateMethodSpec(command, domain, true, 0));
 
       // If some args are optional, generate method with optional args omitted
       List<Property> commandArgs = command
@@ -620,24 +759,8 @@ public class Generator {
 
         while (lastIndex >= 0 && commandArgs.get(lastIndex).getOptional().orElse(false)) {
           omitted++;
-          builder.addMethod(
-            generateMethodSpec(
-              command,
-              domain,
-              Optional.of(domain.getName() + "." + getResultClassName(command)),
-              false,
-              omitted
-            )
-          );
-          builder.addMethod(
-            generateMethodSpec(
-              command,
-              domain,
-              Optional.of(domain.getName() + "." + getResultClassName(command)),
-              true,
-              omitted
-            )
-          );
+          builder.addMethod(generateMethodSpec(command, domain, false, omitted));
+          builder.addMethod(generateMethodSpec(command, domain, true, omitted));
           lastIndex--;
         }
       }
@@ -676,6 +799,7 @@ public class Generator {
 
     TypeSpec.Builder builder = TypeSpec
       .classBuilder(getResultClassName(command))
+      .addAnnotation(ChromeMultiValueResult.class)
       .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
 
     MethodSpec.Builder ctorBuilder = MethodSpec
@@ -708,10 +832,163 @@ public class Generator {
     return builder.addMethod(ctorBuilder.build()).build();
   }
 
+  /**
+   * The type a command's result is bound to: its only return value, or the container
+   * generated for several of them.
+   */
+  private Optional<TypeName> getResultTypeName(Command command, Domain domain) {
+    List<Property> returnValues = command.getReturns().orElse(Collections.emptyList());
+    String packageName = getPackageName(domain);
+    if (returnValues.isEmpty()) {
+      return Optional.empty();
+    } else if (returnValues.size() == 1) {
+      return Optional.of(getTypeName(returnValues.get(0), packageName));
+    }
+    ClassPackageResolver classPackageResolver = new ClassPackageResolver(
+      packageName,
+      domain.getName() + "." + getResultClassName(command)
+    );
+    return Optional.of(
+      ClassName.get(
+        classPackageResolver.getPackageName(),
+        classPackageResolver.getClassName()
+      )
+    );
+  }
+
+  private String getResultTypeFieldName(Command command) {
+    return formatEnumName(command.getName()) + "_RESULT_TYPE";
+  }
+
+  /**
+   * The result type of `command`, resolved once when the domain class is loaded rather
+   * than from a new TypeReference on every call.
+   */
+  private FieldSpec generateResultTypeField(Command command, TypeName resultType) {
+    CodeBlock initializer = resultType instanceof ParameterizedTypeName
+      ? CodeBlock.of(
+        "$T.defaultInstance().constructType(new $T<$T>() {})",
+        TypeFactory.class,
+        TypeReference.class,
+        resultType
+      )
+      : CodeBlock.of(
+        "$T.defaultInstance().constructType($T.class)",
+        TypeFactory.class,
+        resultType
+      );
+    return FieldSpec
+      .builder(
+        JavaType.class,
+        getResultTypeFieldName(command),
+        Modifier.PRIVATE,
+        Modifier.STATIC,
+        Modifier.FINAL
+      )
+      .initializer(initializer)
+      .build();
+  }
+
   private String getResultClassName(Command command) {
     return capitalize(command.getName()) + "Result";
   }
 
+  private String getRequestClassName(Command command) {
+    return capitalize(command.getName()) + "Request";
+  }
+
+  /**
+   * A request for `command` that holds its arguments and writes them straight to the
+   * generator when it's serialized, leaving out those that are null.
+   */
+  private TypeSpec generateRequestTypeSpec(Command command, Domain domain) {
+    String packageName = getPackageName(domain);
+    TypeSpec.Builder builder = TypeSpec
+      .classBuilder(getRequestClassName(command))
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+      .superclass(ChromeRequest.class);
+
+    MethodSpec.Builder ctorBuilder = MethodSpec
+      .constructorBuilder()
+      .addStatement("super($S)", domain.getName() + "." + command.getName());
+
+    MethodSpec.Builder writeParamsBuilder = MethodSpec
+      .methodBuilder("writeParams")
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PROTECTED)
+      .addParameter(JsonGenerator.class, "generator")
+      .addParameter(SerializerProvider.class, "provider")
+      .addException(IOException.class);
+
+    CodeBlock.Builder hasParams = CodeBlock.builder();
+    for (Property property : command.getParameters().get()) {
+      String name = property.getName();
+      TypeName type = getTypeName(property, packageName);
+      builder.addField(type, name, Modifier.PRIVATE, Modifier.FINAL);
+      ctorBuilder.addParameter(type, name).addStatement("this.$1N = $1N", name);
+      writeParamsBuilder
+        .beginControlFlow("if (this.$N != null)", name)
+        .addCode(generateParamWriter(property, domain))
+        .endControlFlow();
+      hasParams.add("this.$N != null || ", name);
+    }
+    writeParamsBuilder.addStatement("super.writeParams(generator, provider)");
+
+    MethodSpec hasParamsMethod = MethodSpec
+      .methodBuilder("hasParams")
+      .addAnnotation(Override.class)
+      .addModifiers(Modifier.PROTECTED)
+      .returns(boolean.class)
+      .addStatement("return $Lsuper.hasParams()", hasParams.build())
+      .build();
+
+    return builder
+      .addMethod(ctorBuilder.build())
+      .addMethod(hasParamsMethod)
+      .addMethod(writeParamsBuilder.build())
+      .build();
+  }
+
+  private CodeBlock generateParamWriter(Property property, Domain domain) {
+    String name = property.getName();
+    String value = "this." + name;
+    String type = property.getType().orElse(null);
+    if (property.getRef().isPresent()) {
+      String ref = property.getRef().get();
+      Type refType = typesByRef.get(
+        ref.contains(".") ? ref : domain.getName() + "." + ref
+      );
+      if (refType == null || refType.getProperties().isPresent()) {
+        type = null;
+      } else if (refType.getEnum().isPresent()) {
+        type = "string";
+        value += ".getValue()";
+      } else {
+        type = refType.getType();
+        value += ".getValue()";
+      }
+    }
+
+    if ("string".equals(type)) {
+      return CodeBlock.of("generator.writeStringField($S, $L);\n", name, value);
+    } else if ("integer".equals(type) && !property.getRef().isPresent()) {
+      return CodeBlock.of("generator.writeNumberField($S, $L);\n", name, value);
+    } else if ("integer".equals(type) || "number".equals(type)) {
+      return CodeBlock
+        .builder()
+        .addStatement("generator.writeFieldName($S)", name)
+        .addStatement("writeNumber(generator, $L)", value)
+        .build();
+    } else if ("boolean".equals(type) && !property.getRef().isPresent()) {
+      return CodeBlock.of("generator.writeBooleanField($S, $L);\n", name, value);
+    }
+    return CodeBlock.of(
+      "provider.defaultSerializeField($S, this.$N, generator);\n",
+      name,
+      name
+    );
+  }
+
   private String getEventClassName(Command event) {
     return capitalize(event.getName()) + "Event";
   }
@@ -719,7 +996,6 @@ public class Generator {
   private MethodSpec generateMethodSpec(
     Command command,
     Domain domain,
-    Optional<String> returnTypeName,
     boolean async,
     int omitCount
   ) {
@@ -731,60 +1007,55 @@ public class Generator {
     }
     Builder methodBuilder = MethodSpec
       .methodBuilder(methodName)
-      .addModifiers(Modifier.PUBLIC)
-      .addStatement(
-        "$1T chromeRequest = new $1T($2S)",
-        ChromeRequest.class,
-        domain.getName() + "." + command.getName()
-      );
+      .addModifiers(Modifier.PUBLIC);
 
-    boolean hasParams = false;
     List<String> parameterDescriptions = new ArrayList<>();
     String packageName = getPackageName(domain);
-    CodeBlock.Builder putParamsBuilder = CodeBlock.builder().add("chromeRequest");
 
     List<Property> properties = command.getParameters().orElse(Collections.emptyList());
     int maxArgs = properties.size() - omitCount;
-    int argCount = 0;
-    if (maxArgs == 0) {
-      hasParams = false;
-    } else {
-      for (Property property : command.getParameters().orElse(Collections.emptyList())) {
-        hasParams = true;
-        methodBuilder.addParameter(
-          getTypeName(property, packageName),
-          property.getName()
-        );
-        if (property.getDescription().isPresent()) {
-          parameterDescriptions.add(formatParamForJavadoc(property));
-        }
-        putParamsBuilder.add("\n.putParams($1S, $1N)", property.getName());
-        argCount++;
-        if (argCount >= maxArgs) {
-          break;
-        }
+    List<String> args = new ArrayList<>();
+    for (Property property : properties) {
+      if (args.size() >= maxArgs) {
+        // Omitted optional args are left out of the params
+        args.add("null");
+        continue;
       }
+      methodBuilder.addParameter(getTypeName(property, packageName), property.getName());
+      if (property.getDescription().isPresent()) {
+        parameterDescriptions.add(formatParamForJavadoc(property));
+      }
+      args.add(property.getName());
     }
-    if (hasParams) {
-      methodBuilder.addStatement(putParamsBuilder.build());
+    if (properties.isEmpty()) {
+      methodBuilder.addStatement(
+        "$1T chromeRequest = new $1T($2S)",
+        ChromeRequest.class,
+        domain.getName() + "." + command.getName()
+      );
+    } else {
+      methodBuilder.addStatement(
+        "$T chromeRequest = new $N($L)",
+        ChromeRequest.class,
+        getRequestClassName(command),
+        String.join(", ", args)
+      );
     }
 
-    List<Property> returnValues = command.getReturns().orElse(Collections.emptyList());
-    if (returnValues.size() == 0) {
+    Optional<TypeName> valueType = getResultTypeName(command, domain);
+    if (!valueType.isPresent() && async) {
+      methodBuilder
+        .returns(
+          ParameterizedTypeName.get(
+            ClassName.get(CompletableFuture.class),
+            ClassName.get(Void.class)
+          )
+        )
+        .addStatement("return " + sendCommand + "(chromeRequest)");
+    } else if (!valueType.isPresent()) {
       methodBuilder.addStatement(sendCommand + "(chromeRequest)");
     } else {
-      ClassPackageResolver classPackageResolver = new ClassPackageResolver(
-        packageName,
-        returnTypeName.get()
-      );
-      TypeName valueType = returnValues.size() == 1
-        ? getTypeName(returnValues.get(0), packageName)
-        : ClassName.get(
-          classPackageResolver.getPackageName(),
-          classPackageResolver.getClassName()
-        );
-
-      TypeName returnType = valueType;
+      TypeName returnType = valueType.get();
       if (async) {
         returnType =
           ParameterizedTypeName.get(ClassName.get(CompletableFuture.class), returnType);
@@ -792,9 +1063,8 @@ public class Generator {
       methodBuilder
         .returns(returnType)
         .addStatement(
-          "return " + sendCommand + "(chromeRequest, new $T<$T>(){})",
-          ClassName.get(TypeReference.class),
-          valueType
+          "return " + sendCommand + "(chromeRequest, $N)",
+          getResultTypeFieldName(command)
         );
     }
 